@@ -10,6 +10,8 @@ plugins {
     `java-gradle-plugin`
 
     id("com.gradle.plugin-publish") version "0.13.0"
+
+    id("me.champeau.jmh") version "0.6.8"
 }
 
 description = "Gradle plugin to find duplicate code using PMDs copy/paste detection (= CPD)"
@@ -39,6 +41,8 @@ dependencies {
     testImplementation("org.mockito:mockito-core:5.11.0")
     testImplementation("org.mockito:mockito-junit-jupiter:5.11.0")
 
+    "jmhImplementation"("net.sourceforge.pmd:pmd-dist:7.7.0")
+
     "integTestImplementation"("org.assertj:assertj-core:3.25.3")
     "integTestImplementation"("org.junit.vintage:junit-vintage-engine:5.10.2")
     "integTestImplementation"("org.spockframework:spock-core:2.3-groovy-3.0") {
@@ -58,6 +62,15 @@ jacoco {
     toolVersion = "0.8.12"
 }
 
+// Run using "./gradlew jmh", e.g. "./gradlew jmh -PjmhIncludes=CpdReporterBenchmark" to just run a single benchmark
+jmh {
+    includes.addAll(providers.gradleProperty("jmhIncludes").map { listOf(it) }.orElse(emptyList()))
+    warmupIterations.set(2)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+}
+
 tasks {
     named<Javadoc>("javadoc") {
         if (JavaVersion.current().isJava9Compatible) {
@@ -747,4 +747,170 @@ class CpdAcceptanceTest extends IntegrationBaseSpec {
         report2.exists()
         report.text == "lines,tokens,occurrences\n" // empty
     }
+
+    def "Cpd task with sources of source sets can be loaded from the configuration cache"() {
+        given:
+        buildFileWithPluginAndRepos(['java']) << """
+            sourceSets.main.java.srcDirs = ${testPath(JAVA, 'de/aaschmid/clazz')}
+            cpdCheck{
+                reports{
+                    csv.required = true
+                    xml.required = false
+                }
+            }
+            """.stripIndent()
+
+        when:
+        def result = runWithoutDebug('--configuration-cache', 'cpdCheck')
+
+        then:
+        result.task(':cpdCheck').outcome == SUCCESS
+        result.output.contains('Configuration cache entry stored.')
+
+        when:
+        file('build/reports/cpd/cpdCheck.csv').delete() // remove report in order to force re-execution of `cpdCheck`
+
+        and:
+        def result2 = runWithoutDebug('--configuration-cache', 'cpdCheck')
+
+        then:
+        result2.task(':cpdCheck').outcome == SUCCESS
+        result2.output.contains('Configuration cache entry reused.')
+        file('build/reports/cpd/cpdCheck.csv').text == "lines,tokens,occurrences\n" // empty
+    }
+
+    def "Cpd task with reports, baseline and 'changedSinceRef' can be loaded from the configuration cache"() {
+        given:
+        buildFileWithPluginAndRepos() << """
+            cpd{
+                baselineFile = file('config/cpd/baseline.txt')
+                changedSinceRef = 'HEAD'
+            }
+            cpdBaseline{
+                source = ${testPath(JAVA, 'de/aaschmid/clazz')}
+            }
+            cpdCheck{
+                reports{
+                    csv.required = true
+                    text.required = true
+                }
+                source = ${testPath(JAVA, 'de/aaschmid/clazz')}
+            }
+            """.stripIndent()
+        git('init')
+        git('add', 'build.gradle')
+        git('-c', 'user.name=test', '-c', 'user.email=test@example.com', 'commit', '-m', 'initial')
+
+        when:
+        def baselineResult = runWithoutDebug('--configuration-cache', 'cpdBaseline')
+
+        then:
+        baselineResult.task(':cpdBaseline').outcome == SUCCESS
+        file('config/cpd/baseline.txt').exists()
+
+        when:
+        def result = runWithoutDebug('--configuration-cache', 'cpdCheck')
+
+        then:
+        result.task(':cpdCheck').outcome == SUCCESS
+        result.output.contains('Configuration cache entry stored.')
+        file('build/reports/cpd/cpdCheck.csv').text == "lines,tokens,occurrences\n" // empty
+        file('build/reports/cpd/cpdCheck.text').exists()
+
+        when:
+        def result2 = runWithoutDebug('--configuration-cache', 'cpdCheck')
+
+        then:
+        result2.task(':cpdCheck').outcome == SUCCESS // never up-to-date because of 'changedSinceRef'
+        result2.output.contains('Configuration cache entry reused.')
+        file('build/reports/cpd/cpdCheck.csv').text == "lines,tokens,occurrences\n" // empty
+    }
+
+    def "Cpd should produce result if analysis runs in separate process"() {
+        given:
+        buildFileWithPluginAndRepos() << """
+            cpdCheck{
+                minimumTokenCount = 5
+                processIsolation = true
+                minHeapSize = '32m'
+                maxHeapSize = '256m'
+                jvmArgs = [ '-XX:+UseSerialGC' ]
+                reports{
+                    csv.required = true
+                    xml.required = false
+                }
+                source = ${testPath(JAVA, 'de/aaschmid/duplicate', 'de/aaschmid/test')}
+            }
+            """.stripIndent()
+
+        when:
+        def result = run("cpdCheck")
+
+        then:
+        result.task(':cpdCheck').outcome == FAILED
+        result.output.contains("BUILD FAILED")
+        result.output =~ /CPD found duplicate code\. See the report at file:\/\/.*\/cpdCheck.csv/
+
+        def report = file('build/reports/cpd/cpdCheck.csv')
+        report.exists()
+        report.text =~ /6,15,2,20,.*(duplicate|test)\/Test\.java,20,.*(duplicate|test)\/Test\.java/
+    }
+
+    def "Cpd should write metrics file if configured"() {
+        given:
+        buildFileWithPluginAndRepos() << """
+            cpdCheck{
+                minimumTokenCount = 5
+                ignoreFailures = true
+                metricsFile = file('build/reports/cpd/cpdCheck-metrics.json')
+                source = ${testPath(JAVA, 'de/aaschmid/duplicate', 'de/aaschmid/test')}
+            }
+            """.stripIndent()
+
+        when:
+        def result = run("cpdCheck")
+
+        then:
+        result.task(':cpdCheck').outcome == SUCCESS
+        result.output.contains("BUILD SUCCESSFUL")
+
+        def metrics = file('build/reports/cpd/cpdCheck-metrics.json')
+        metrics.exists()
+        metrics.text.contains('"sourceFiles": 2')
+        metrics.text.contains('"matches": 1')
+        metrics.text.contains('"tokenization": ')
+        metrics.text.contains('"matchDetection": ')
+        metrics.text =~ /"type": "xml", "file": ".*cpdCheck.xml"/
+    }
+
+    def "Cpd baseline should contain all duplicates even if 'changedSinceRef' is set"() {
+        given:
+        buildFileWithPluginAndRepos() << """
+            cpd{
+                minimumTokenCount = 15
+                baselineFile = file('config/cpd/baseline.txt')
+                changedSinceRef = 'origin/main'
+            }
+            cpdBaseline{
+                source = ${testPath(JAVA, 'de/aaschmid/clazz')}
+            }
+            """.stripIndent()
+
+        when:
+        def result = run("cpdBaseline")
+
+        then:
+        result.task(':cpdBaseline').outcome == SUCCESS
+        result.output.contains("BUILD SUCCESSFUL")
+
+        def baseline = file('config/cpd/baseline.txt')
+        baseline.exists()
+        baseline.text =~ /[0-9a-f]{16}\t\d+\t.*Clazz[12]\.java\t.*Clazz[12]\.java/
+    }
+
+    private void git(String... arguments) {
+        def process = (['git'] + arguments.toList()).execute(null, testProjectDir.toFile())
+        process.waitForProcessOutput(new StringBuilder(), new StringBuilder())
+        assert process.exitValue() == 0
+    }
 }
@@ -0,0 +1,78 @@
+package de.aaschmid.gradle.plugins.cpd.internal.worker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.pmd.cpd.CPDConfiguration;
+import net.sourceforge.pmd.cpd.CPDReport;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CpdExecutorBenchmark {
+
+    @Param({ "100", "1000" })
+    int fileCount;
+
+    @Param({ "0.0", "0.2", "0.5" })
+    double duplicationRatio;
+
+    private Path corpusDirectory;
+    private Set<File> sourceFiles;
+    private CpdExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpusDirectory = Files.createTempDirectory("cpd-benchmark");
+        sourceFiles = SyntheticCorpus.generate(corpusDirectory, fileCount, duplicationRatio);
+        executor = new CpdExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticCorpus.delete(corpusDirectory);
+    }
+
+    /**
+     * CPD does not allow to tokenize without analyzing, therefore a minimum token count just above the largest generated file is used such
+     * that no match can be found and mostly tokenizing is measured. The remaining match phase overhead is linear in the amount of tokens:
+     * computing the rolling hash once per token and collecting the (never matching) hash buckets.
+     * <p>
+     * Note: The minimum token count must not be much larger as PMD's match algorithm precomputes its hash modulus with as many
+     * multiplications as the minimum token count.
+     */
+    @Benchmark
+    public CPDReport tokenize() {
+        return executor.run(createCpdConfiguration(SyntheticCorpus.maxTokensPerFile() + 1), sourceFiles, new CpdMetrics());
+    }
+
+    @Benchmark
+    public CPDReport analyze() {
+        return executor.run(createCpdConfiguration(50), sourceFiles, new CpdMetrics());
+    }
+
+    static CPDConfiguration createCpdConfiguration(int minimumTokenCount) {
+        CPDConfiguration result = new CPDConfiguration();
+        result.setSourceEncoding(UTF_8);
+        result.setOnlyRecognizeLanguage(LanguageRegistry.CPD.getLanguageById("java"));
+        result.setMinimumTileSize(minimumTokenCount);
+        return result;
+    }
+}
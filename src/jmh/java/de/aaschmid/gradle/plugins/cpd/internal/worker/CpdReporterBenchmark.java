@@ -0,0 +1,83 @@
+package de.aaschmid.gradle.plugins.cpd.internal.worker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import de.aaschmid.gradle.plugins.cpd.internal.worker.CpdWorkParameters.Report;
+import net.sourceforge.pmd.cpd.CPDReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CpdReporterBenchmark {
+
+    @Param({ "1000" })
+    int fileCount;
+
+    @Param({ "0.2" })
+    double duplicationRatio;
+
+    @Param({ "csv", "text", "vs", "xml", "all" })
+    String reportType;
+
+    private Path corpusDirectory;
+    private CPDReport cpdReport;
+    private List<Report> reports;
+    private CpdReporter reporter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpusDirectory = Files.createTempDirectory("cpd-benchmark");
+        cpdReport = new CpdExecutor().run(CpdExecutorBenchmark.createCpdConfiguration(50),
+                SyntheticCorpus.generate(corpusDirectory, fileCount, duplicationRatio), new CpdMetrics());
+        reports = createReports(corpusDirectory.resolve("reports"));
+        reporter = new CpdReporter();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticCorpus.delete(corpusDirectory);
+    }
+
+    @Benchmark
+    public void render() {
+        reporter.generate(reports, cpdReport, new CpdMetrics());
+    }
+
+    private List<Report> createReports(Path reportsDirectory) throws IOException {
+        File directory = Files.createDirectories(reportsDirectory).toFile();
+
+        Report csv = new Report.Csv(new File(directory, "cpd.csv"), "UTF-8", false, ',', true);
+        Report text = new Report.Text(new File(directory, "cpd.text"), "UTF-8", false, "=====", false);
+        Report vs = new Report.Vs(new File(directory, "cpd.vs"), "UTF-8", false);
+        Report xml = new Report.Xml(new File(directory, "cpd.xml"), "UTF-8", false);
+        switch (reportType) {
+            case "csv":
+                return Collections.singletonList(csv);
+            case "text":
+                return Collections.singletonList(text);
+            case "vs":
+                return Collections.singletonList(vs);
+            case "xml":
+                return Collections.singletonList(xml);
+            default:
+                return Arrays.asList(csv, text, vs, xml);
+        }
+    }
+}
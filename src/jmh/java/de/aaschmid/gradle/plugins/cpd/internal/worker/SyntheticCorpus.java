@@ -0,0 +1,101 @@
+package de.aaschmid.gradle.plugins.cpd.internal.worker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Generates a synthetic Java code base for benchmarking. Every file consists of {@link #METHODS_PER_FILE} methods where each method is
+ * either a copy of a shared method (with the given {@code duplicationRatio}) or a unique one.
+ */
+class SyntheticCorpus {
+
+    private static final int METHODS_PER_FILE = 20;
+    private static final int STATEMENTS_PER_METHOD = 12;
+
+    /** Tokens of package declaration, class declaration and closing brace of a file. */
+    private static final int CLASS_TOKENS = 8;
+    /** Tokens of method signature, first and return statement as well as closing brace of a method. */
+    private static final int METHOD_TOKENS = 17;
+    /** Tokens of the longest generated statement, i.e. the {@code for} loop. */
+    private static final int MAX_STATEMENT_TOKENS = 20;
+
+    /** @return an upper bound of the amount of Java tokens of any generated file */
+    static int maxTokensPerFile() {
+        return CLASS_TOKENS + METHODS_PER_FILE * (METHOD_TOKENS + STATEMENTS_PER_METHOD * MAX_STATEMENT_TOKENS);
+    }
+
+    static Set<File> generate(Path directory, int fileCount, double duplicationRatio) throws IOException {
+        Random random = new Random(42); // fixed seed such that every trial analyzes the same code base
+
+        List<String> sharedMethods = new ArrayList<>();
+        for (int i = 0; i < METHODS_PER_FILE; i++) {
+            sharedMethods.add(createMethod("shared" + i, random));
+        }
+
+        Set<File> result = new LinkedHashSet<>();
+        for (int i = 0; i < fileCount; i++) {
+            StringBuilder source = new StringBuilder();
+            source.append("package synthetic;\n\n");
+            source.append("public class Synthetic").append(i).append(" {\n\n");
+            for (int j = 0; j < METHODS_PER_FILE; j++) {
+                if (random.nextDouble() < duplicationRatio) {
+                    source.append(sharedMethods.get(random.nextInt(sharedMethods.size())));
+                } else {
+                    source.append(createMethod("method" + j, random));
+                }
+            }
+            source.append("}\n");
+
+            Path file = directory.resolve("Synthetic" + i + ".java");
+            Files.write(file, source.toString().getBytes(UTF_8));
+            result.add(file.toFile());
+        }
+        return result;
+    }
+
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static String createMethod(String name, Random random) {
+        StringBuilder result = new StringBuilder();
+        result.append("    public int ").append(name).append("(int value) {\n");
+        result.append("        int result = value;\n");
+        for (int i = 0; i < STATEMENTS_PER_METHOD; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    result.append("        result += ").append(random.nextInt(1000)).append(";\n");
+                    break;
+                case 1:
+                    result.append("        result = result * ").append(random.nextInt(100)).append(" % 65521;\n");
+                    break;
+                case 2:
+                    result.append("        if (result > ").append(random.nextInt(10000)).append(") {\n");
+                    result.append("            result -= value;\n");
+                    result.append("        }\n");
+                    break;
+                default:
+                    result.append("        for (int i = 0; i < ").append(random.nextInt(10)).append("; i++) {\n");
+                    result.append("            result ^= i;\n");
+                    result.append("        }\n");
+                    break;
+            }
+        }
+        result.append("        return result;\n");
+        result.append("    }\n\n");
+        return result.toString();
+    }
+}
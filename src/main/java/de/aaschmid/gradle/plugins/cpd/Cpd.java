@@ -1,9 +1,13 @@
 package de.aaschmid.gradle.plugins.cpd;
 
 import javax.inject.Inject;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
+import de.aaschmid.gradle.plugins.cpd.internal.CpdReportInternal;
 import de.aaschmid.gradle.plugins.cpd.internal.CpdReportsImpl;
 import de.aaschmid.gradle.plugins.cpd.internal.worker.CpdAction;
 import de.aaschmid.gradle.plugins.cpd.internal.worker.CpdWorkParameters;
@@ -12,9 +16,14 @@ import groovy.lang.Closure;
 import groovy.lang.DelegatesTo;
 import org.gradle.api.Action;
 import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.file.Directory;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTree;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.ProviderFactory;
 import org.gradle.api.reporting.Reporting;
 import org.gradle.api.reporting.SingleFileReport;
@@ -25,6 +34,7 @@ import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.SkipWhenEmpty;
@@ -32,6 +42,7 @@ import org.gradle.api.tasks.SourceTask;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.VerificationTask;
 import org.gradle.util.internal.ConfigureUtil;
+import org.gradle.workers.WorkQueue;
 import org.gradle.workers.WorkerExecutor;
 
 
@@ -77,6 +88,7 @@ public class Cpd extends SourceTask implements VerificationTask, Reporting<CpdRe
     private final ProviderFactory providerFactory;
     private final WorkerExecutor workerExecutor;
     private final CpdReports reports;
+    private final Directory projectDir;
 
     private String encoding;
     private boolean failOnError;
@@ -89,29 +101,96 @@ public class Cpd extends SourceTask implements VerificationTask, Reporting<CpdRe
     private Integer minimumTokenCount;
     private FileCollection pmdClasspath;
     private boolean skipDuplicateFiles;
+    private final Property<Boolean> skipIdenticalFiles;
     private boolean skipBlocks;
     private String skipBlocksPattern;
+    private final Property<Long> maxFileSizeBytes;
+    private final Property<Integer> maxFileLines;
+    private final Property<Boolean> skipGeneratedFiles;
+    private final Property<String> generatedFilesPattern;
+    private final Property<Boolean> processIsolation;
+    private final Property<String> minHeapSize;
+    private final Property<String> maxHeapSize;
+    private final ListProperty<String> jvmArgs;
+    private final RegularFileProperty metricsFile;
+    private final RegularFileProperty baselineFile;
+    private final Property<String> changedSinceRef;
 
     @Inject
-    public Cpd(ObjectFactory objectFactory, ProviderFactory providerFactory, WorkerExecutor workerExecutor) {
+    public Cpd(ObjectFactory objectFactory, ProjectLayout projectLayout, ProviderFactory providerFactory, WorkerExecutor workerExecutor) {
         this.providerFactory = providerFactory;
         this.reports = objectFactory.newInstance(CpdReportsImpl.class, this);
         this.workerExecutor = workerExecutor;
+        this.projectDir = projectLayout.getProjectDirectory();
+
+        // options added with v3.6 are lazy properties, e.g. such that they can be wired from other providers
+        this.maxFileSizeBytes = objectFactory.property(Long.class);
+        this.maxFileLines = objectFactory.property(Integer.class);
+        this.skipGeneratedFiles = objectFactory.property(Boolean.class).convention(false);
+        this.generatedFilesPattern = objectFactory.property(String.class);
+        this.skipIdenticalFiles = objectFactory.property(Boolean.class).convention(false);
+        this.processIsolation = objectFactory.property(Boolean.class).convention(false);
+        this.minHeapSize = objectFactory.property(String.class);
+        this.maxHeapSize = objectFactory.property(String.class);
+        this.jvmArgs = objectFactory.listProperty(String.class);
+        this.metricsFile = objectFactory.fileProperty();
+        this.baselineFile = objectFactory.fileProperty();
+        this.changedSinceRef = objectFactory.property(String.class);
+
+        // the result depends on the state of the git repository which is not tracked as input (unless writing a baseline)
+        getOutputs().doNotCacheIf("'changedSinceRef' is set", task -> getChangedSinceRef().isPresent() && !writesBaseline());
+        getOutputs().upToDateWhen(task -> !getChangedSinceRef().isPresent() || writesBaseline());
+
+        // metrics contain timings and heap usage of the current execution which would be misleading if loaded from the build cache
+        getOutputs().doNotCacheIf("'metricsFile' is set", task -> getMetricsFile().isPresent());
     }
 
     @TaskAction
     public void run() {
         checkTaskState();
 
-        workerExecutor
-                .classLoaderIsolation(action -> action.getClasspath().setFrom(getPmdClasspath()))
-                .submit(CpdAction.class, getCpdWorkParameters());
+        createWorkQueue().submit(CpdAction.class, getCpdWorkParameters());
+    }
+
+    private WorkQueue createWorkQueue() {
+        if (getProcessIsolation().get()) {
+            return workerExecutor.processIsolation(spec -> {
+                spec.getClasspath().setFrom(getPmdClasspath());
+                spec.forkOptions(forkOptions -> {
+                    forkOptions.setMinHeapSize(getMinHeapSize().getOrNull());
+                    forkOptions.setMaxHeapSize(getMaxHeapSize().getOrNull());
+                    forkOptions.jvmArgs(getJvmArgs().get());
+                });
+            });
+        }
+        return workerExecutor.classLoaderIsolation(spec -> spec.getClasspath().setFrom(getPmdClasspath()));
     }
 
     private void checkTaskState() {
         if (getMinimumTokenCount() <= 0) {
             throw new InvalidUserDataException(String.format("Task '%s' requires 'minimumTokenCount' to be greater than zero.", getName()));
         }
+        if (getMaxFileSizeBytes().isPresent() && getMaxFileSizeBytes().get() <= 0) {
+            throw new InvalidUserDataException(String.format("Task '%s' requires 'maxFileSizeBytes' to be greater than zero.", getName()));
+        }
+        if (getMaxFileLines().isPresent() && getMaxFileLines().get() <= 0) {
+            throw new InvalidUserDataException(String.format("Task '%s' requires 'maxFileLines' to be greater than zero.", getName()));
+        }
+        if (getSkipGeneratedFiles().get()) {
+            try {
+                Pattern.compile(getGeneratedFilesPattern().get());
+            } catch (PatternSyntaxException e) {
+                throw new InvalidUserDataException(String.format("Task '%s' requires 'generatedFilesPattern' to be a valid regular expression.",
+                        getName()), e);
+            }
+        }
+        if (getChangedSinceRef().isPresent() && getChangedSinceRef().get().startsWith("-")) {
+            throw new InvalidUserDataException(String.format("Task '%s' requires 'changedSinceRef' to be a git ref not starting with '-'.",
+                    getName()));
+        }
+        if (writesBaseline() && !getBaselineFile().isPresent()) {
+            throw new InvalidUserDataException(String.format("Task '%s' requires 'baselineFile' to be set.", getName()));
+        }
         if (getReports().getEnabledReports().isEmpty()) {
             throw new InvalidUserDataException(String.format("Task '%s' requires at least one required report.", getName()));
         }
@@ -131,8 +210,18 @@ public class Cpd extends SourceTask implements VerificationTask, Reporting<CpdRe
             parameters.getSkipBlocks().set(getSkipBlocks());
             parameters.getSkipBlocksPattern().set(getSkipBlocksPattern());
             parameters.getSkipDuplicateFiles().set(getSkipDuplicateFiles());
-            parameters.getSourceFiles().setFrom(getSource().getFiles());
+            parameters.getSkipIdenticalFiles().set(getSkipIdenticalFiles());
+            parameters.getMaxFileSizeBytes().set(getMaxFileSizeBytes());
+            parameters.getMaxFileLines().set(getMaxFileLines());
+            parameters.getSkipGeneratedFiles().set(getSkipGeneratedFiles());
+            parameters.getGeneratedFilesPattern().set(getGeneratedFilesPattern());
+            parameters.getSourceFiles().setFrom(getSource());
             parameters.getReportParameters().set(createReportParameters(getReports()));
+            parameters.getMetricsFile().set(getMetricsFile());
+            parameters.getBaselineFile().set(getBaselineFile());
+            parameters.getWriteBaseline().set(writesBaseline());
+            parameters.getProjectDirectory().set(projectDir);
+            parameters.getChangedSinceRef().set(getChangedSinceRef());
         };
     }
 
@@ -143,22 +232,25 @@ public class Cpd extends SourceTask implements VerificationTask, Reporting<CpdRe
                 continue;
             }
 
+            File destination = report.getOutputLocation().get().getAsFile();
+            boolean compressed = report instanceof CpdReportInternal && ((CpdReportInternal) report).isCompressed();
+
             if (report instanceof CpdCsvFileReport) {
                 Character separator = ((CpdCsvFileReport) report).getSeparator();
                 boolean includeLineCount = ((CpdCsvFileReport) report).isIncludeLineCount();
-                result.add(new Report.Csv(report.getOutputLocation().get().getAsFile(), separator, includeLineCount));
+                result.add(new Report.Csv(destination, getEncodingOrFallback(), compressed, separator, includeLineCount));
 
             } else if (report instanceof CpdTextFileReport) {
                 String lineSeparator = ((CpdTextFileReport) report).getLineSeparator();
                 boolean trimLeadingCommonSourceWhitespaces = ((CpdTextFileReport) report).getTrimLeadingCommonSourceWhitespaces();
-                result.add(new Report.Text(report.getOutputLocation().get().getAsFile(), lineSeparator, trimLeadingCommonSourceWhitespaces));
+                result.add(new Report.Text(destination, getEncodingOrFallback(), compressed, lineSeparator, trimLeadingCommonSourceWhitespaces));
 
             } else if (report.getName().equals("vs")) {
-                result.add(new Report.Vs(report.getOutputLocation().get().getAsFile()));
+                result.add(new Report.Vs(destination, getEncodingOrFallback(), compressed));
 
             } else if (report instanceof CpdXmlFileReport) {
                 String encoding = getXmlRendererEncoding((CpdXmlFileReport) report);
-                result.add(new Report.Xml(report.getOutputLocation().get().getAsFile(), encoding));
+                result.add(new Report.Xml(destination, encoding, compressed));
 
             } else {
                 throw new IllegalArgumentException(String.format("Report of type '%s' not available.", report.getClass().getSimpleName()));
@@ -297,9 +389,9 @@ public class Cpd extends SourceTask implements VerificationTask, Reporting<CpdRe
     }
 
     /**
-     * Flag to select the appropriate language.
+     * Flag to select the appropriate language; multiple languages can be separated by comma.
      * <p>
-     * Example: {@code language = 'java'}
+     * Example: {@code language = 'java'} or {@code language = 'java,kotlin'}
      *
      * @return used language
      */
@@ -359,6 +451,22 @@ public class Cpd extends SourceTask implements VerificationTask, Reporting<CpdRe
         this.skipDuplicateFiles = skipDuplicateFiles;
     }
 
+    /**
+     * Tokenize files having exactly the same content only once and report them as identical files instead; defaults to {@link
+     * CpdExtension#getSkipIdenticalFiles()}.
+     * <p>
+     * <b>Note:</b> Reports become incomplete if enabled, as skipped copies are never tokenized: they neither appear in any report nor are
+     * their duplicates with other files reported. Only the first file of each group is contained in the reports.
+     * <p>
+     * Example: {@code skipIdenticalFiles = true}
+     *
+     * @return whether identical files should only be tokenized once
+     */
+    @Input
+    public Property<Boolean> getSkipIdenticalFiles() {
+        return skipIdenticalFiles;
+    }
+
     /**
      * Whether CPD should exit with status 4 (the default behavior, true)
      * if violations are found or just with 0 (to not break the build, e.g.).
@@ -428,4 +536,170 @@ public class Cpd extends SourceTask implements VerificationTask, Reporting<CpdRe
     public void setSkipBlocksPattern(String skipBlocksPattern) {
         this.skipBlocksPattern = skipBlocksPattern;
     }
+
+    /**
+     * Source files larger than this amount of bytes are skipped before tokenization; defaults to {@link
+     * CpdExtension#getMaxFileSizeBytes()}.
+     * <p>
+     * Example: {@code maxFileSizeBytes = 1024 * 1024}
+     *
+     * @return the maximum size of a source file in bytes, not present if unlimited
+     */
+    @Input
+    @Optional
+    public Property<Long> getMaxFileSizeBytes() {
+        return maxFileSizeBytes;
+    }
+
+    /**
+     * Source files having more lines than this are skipped before tokenization; defaults to {@link CpdExtension#getMaxFileLines()}.
+     * <p>
+     * Example: {@code maxFileLines = 10000}
+     *
+     * @return the maximum amount of lines of a source file, not present if unlimited
+     */
+    @Input
+    @Optional
+    public Property<Integer> getMaxFileLines() {
+        return maxFileLines;
+    }
+
+    /**
+     * Whether source files which seem to be generated, i.e. contain {@link #getGeneratedFilesPattern()} within their first {@code 16 KiB},
+     * should be skipped before tokenization; defaults to {@link CpdExtension#getSkipGeneratedFiles()}.
+     * <p>
+     * Example: {@code skipGeneratedFiles = true}
+     *
+     * @return whether generated files should be skipped
+     * @see #getGeneratedFilesPattern()
+     */
+    @Input
+    public Property<Boolean> getSkipGeneratedFiles() {
+        return skipGeneratedFiles;
+    }
+
+    /**
+     * The regular expression to detect generated source files if enabled using {@link #getSkipGeneratedFiles()}; defaults to {@link
+     * CpdExtension#getGeneratedFilesPattern()}.
+     * <p>
+     * Example: {@code generatedFilesPattern = '@Generated|This file was generated by .*'}
+     *
+     * @return the pattern used to detect generated files
+     * @see #getSkipGeneratedFiles()
+     */
+    @Input
+    public Property<String> getGeneratedFilesPattern() {
+        return generatedFilesPattern;
+    }
+
+    /**
+     * Whether the analysis should run in a separate worker process instead of inside the Gradle daemon; defaults to {@link
+     * CpdExtension#getProcessIsolation()}.
+     * <p>
+     * Example: {@code processIsolation = true}
+     *
+     * @return whether the analysis runs in a separate process
+     * @see #getMinHeapSize()
+     * @see #getMaxHeapSize()
+     * @see #getJvmArgs()
+     */
+    @Internal
+    public Property<Boolean> getProcessIsolation() {
+        return processIsolation;
+    }
+
+    /**
+     * The minimum heap size for the worker process if {@link #getProcessIsolation()} is enabled; defaults to {@link
+     * CpdExtension#getMinHeapSize()}.
+     * <p>
+     * Example: {@code minHeapSize = '256m'}
+     *
+     * @return the minimum heap size of the worker process
+     */
+    @Internal
+    public Property<String> getMinHeapSize() {
+        return minHeapSize;
+    }
+
+    /**
+     * The maximum heap size for the worker process if {@link #getProcessIsolation()} is enabled; defaults to {@link
+     * CpdExtension#getMaxHeapSize()}.
+     * <p>
+     * Example: {@code maxHeapSize = '2g'}
+     *
+     * @return the maximum heap size of the worker process
+     */
+    @Internal
+    public Property<String> getMaxHeapSize() {
+        return maxHeapSize;
+    }
+
+    /**
+     * Additional JVM arguments for the worker process if {@link #getProcessIsolation()} is enabled, e.g. to choose a garbage collector;
+     * defaults to {@link CpdExtension#getJvmArgs()}.
+     * <p>
+     * Example: {@code jvmArgs = ['-XX:+UseParallelGC']}
+     *
+     * @return the additional JVM arguments of the worker process
+     */
+    @Internal
+    public ListProperty<String> getJvmArgs() {
+        return jvmArgs;
+    }
+
+    /**
+     * The file to write metrics of the analysis to as JSON, e.g. the time taken by each phase, the amount of tokens, the files with most
+     * tokens, the time taken and bytes written by each report as well as the sampled peak heap usage; defaults to {@code null} which means that
+     * no metrics file is written.
+     * <p>
+     * <b>Note:</b> A task writing metrics is not cached as the metrics describe the current execution.
+     * <p>
+     * Example: {@code metricsFile = file("${buildDir}/reports/cpd/cpdCheck-metrics.json")}
+     *
+     * @return the file to write the metrics to
+     */
+    @OutputFile
+    @Optional
+    public RegularFileProperty getMetricsFile() {
+        return metricsFile;
+    }
+
+    /**
+     * The baseline of known duplicates as written by {@link CpdBaseline}; defaults to {@link CpdExtension#getBaselineFile()}. If set, only
+     * duplicates not contained in the baseline are reported and fail the build. A non-existent file is treated as empty baseline.
+     * <p>
+     * Example: {@code baselineFile = file('config/cpd/baseline.txt')}
+     *
+     * @return the file containing the baseline, not present if every duplicate should be reported
+     */
+    @InputFiles
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getBaselineFile() {
+        return baselineFile;
+    }
+
+    /**
+     * A git ref (e.g. {@code origin/main}) to only report duplicates of which at least one occurrence lies in a file changed (or added)
+     * since the merge base of this ref and {@code HEAD}, including uncommitted and untracked files; defaults to {@link
+     * CpdExtension#getChangedSinceRef()}. Commits only contained in the ref therefore do not count as changes. Requires {@code git} on
+     * the {@code PATH}. Ignored by {@link CpdBaseline} as a baseline always contains all duplicates.
+     * <p>
+     * <b>Note:</b> This is a reporting filter, not a speed-up: as changed files must still be compared against all sources, all sources
+     * are tokenized and analyzed as usual unless no source file changed at all. Moreover, such a task is neither up-to-date nor cached.
+     * <p>
+     * Example: {@code changedSinceRef = 'origin/main'}
+     *
+     * @return the git ref to compare with, not present to report all duplicates
+     */
+    @Input
+    @Optional
+    public Property<String> getChangedSinceRef() {
+        return changedSinceRef;
+    }
+
+    /** @return whether this task writes {@link #getBaselineFile()} instead of reporting duplicates contained in it */
+    protected boolean writesBaseline() {
+        return false;
+    }
 }
@@ -0,0 +1,53 @@
+package de.aaschmid.gradle.plugins.cpd;
+
+import javax.inject.Inject;
+
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.workers.WorkerExecutor;
+
+/**
+ * Runs the same analysis as {@link Cpd} but writes fingerprints of all found duplicates to {@link #getBaselineFile()} instead of failing.
+ * Afterwards, {@link Cpd} tasks using this baseline only report and fail on new duplicates.
+ * <p>
+ * Sample:
+ *
+ * <pre>
+ * cpd {
+ *     baselineFile = file('config/cpd/baseline.txt')
+ * }
+ * </pre>
+ *
+ * and then run {@code gradle cpdBaseline} once to accept the currently existing duplicates.
+ *
+ * @see CpdPlugin
+ */
+public class CpdBaseline extends Cpd {
+
+    @Inject
+    public CpdBaseline(ObjectFactory objectFactory, ProjectLayout projectLayout, ProviderFactory providerFactory,
+            WorkerExecutor workerExecutor) {
+        super(objectFactory, projectLayout, providerFactory, workerExecutor);
+    }
+
+    /**
+     * The file to write the baseline of currently existing duplicates to; defaults to {@link CpdExtension#getBaselineFile()}.
+     * <p>
+     * Example: {@code baselineFile = file('config/cpd/baseline.txt')}
+     *
+     * @return the file to write the baseline to
+     */
+    @Override
+    @OutputFile
+    public RegularFileProperty getBaselineFile() {
+        return super.getBaselineFile();
+    }
+
+    @Override
+    protected boolean writesBaseline() {
+        return true;
+    }
+}
@@ -41,4 +41,17 @@ public interface CpdCsvFileReport extends SingleFileReport {
      * @param includeLineCount to be used when generating the CSV report; defaults to {@link #DEFAULT_INCLUDE_LINE_COUNT}.
      */
     void setIncludeLineCount(boolean includeLineCount);
+
+    /**
+     * @return if the report should be written compressed using GZIP; defaults to {@code false}. If enabled, the default output location
+     * gets an additional {@code .gz} suffix.
+     */
+    @Input
+    boolean isCompressed();
+
+    /**
+     * @param compressed set to {@code true} if the report should be written compressed using GZIP, otherwise {@code false}; defaults to
+     * {@code false}.
+     */
+    void setCompressed(boolean compressed);
 }
@@ -1,6 +1,13 @@
 package de.aaschmid.gradle.plugins.cpd;
 
+import javax.inject.Inject;
+import java.util.Collections;
+
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.plugins.quality.CodeQualityExtension;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
 
 
 /**
@@ -32,8 +39,35 @@ public class CpdExtension extends CodeQualityExtension {
     private String language = "java";
     private int minimumTokenCount = 50;
     private boolean skipDuplicateFiles = false;
+    private final Property<Boolean> skipIdenticalFiles;
     private boolean skipBlocks = true;
     private String skipBlocksPattern = "#if 0|#endif";
+    private final Property<Long> maxFileSizeBytes;
+    private final Property<Integer> maxFileLines;
+    private final Property<Boolean> skipGeneratedFiles;
+    private final Property<String> generatedFilesPattern;
+    private final Property<Boolean> processIsolation;
+    private final Property<String> minHeapSize;
+    private final Property<String> maxHeapSize;
+    private final ListProperty<String> jvmArgs;
+    private final RegularFileProperty baselineFile;
+    private final Property<String> changedSinceRef;
+
+    @Inject
+    public CpdExtension(ObjectFactory objectFactory) {
+        this.skipIdenticalFiles = objectFactory.property(Boolean.class).convention(false);
+        this.maxFileSizeBytes = objectFactory.property(Long.class);
+        this.maxFileLines = objectFactory.property(Integer.class);
+        this.skipGeneratedFiles = objectFactory.property(Boolean.class).convention(false);
+        this.generatedFilesPattern = objectFactory.property(String.class).convention(
+                "@(\\w+\\.)*Generated\\b|DO NOT EDIT|(?i:this (class|file|code) (is|was) (auto(matically)?[- ]?)?generated)");
+        this.processIsolation = objectFactory.property(Boolean.class).convention(false);
+        this.minHeapSize = objectFactory.property(String.class);
+        this.maxHeapSize = objectFactory.property(String.class);
+        this.jvmArgs = objectFactory.listProperty(String.class).convention(Collections.emptyList());
+        this.baselineFile = objectFactory.fileProperty();
+        this.changedSinceRef = objectFactory.property(String.class);
+    }
 
     /**
      * The character set encoding (e.g., UTF-8) to use when reading the source code files but also when producing the report; defaults to
@@ -108,7 +142,10 @@ public class CpdExtension extends CodeQualityExtension {
     /**
      * Flag to select the appropriate language; defaults to {@code 'java'}.
      * <p>
-     * Example: {@code language = 'java'}
+     * Multiple languages can be separated by comma. In this case, every source file is tokenized using the language matching its file
+     * extension, all of them are analyzed within a single run and the reports contain the duplicates of all languages.
+     * <p>
+     * Example: {@code language = 'java'} or {@code language = 'java,kotlin'}
      *
      * @return the used language
      */
@@ -150,6 +187,25 @@ public class CpdExtension extends CodeQualityExtension {
         this.skipDuplicateFiles = skipDuplicateFiles;
     }
 
+    /**
+     * Tokenize files having exactly the same content (compared by content hash) only once; defaults to {@code false}.
+     * <p>
+     * In contrast to {@link #skipDuplicateFiles}, which only compares name and length, this also detects copies with different names and
+     * never skips different files. Identical files reaching {@link #getMinimumTokenCount()} are logged and handled like found duplicates,
+     * i.e. they fail the build unless {@link #isIgnoreFailures()} is enabled.
+     * <p>
+     * <b>Note:</b> Reports become incomplete if enabled. As only the first file of each group is tokenized, reports only contain
+     * duplicates of this file; skipped copies and their duplicates with other files are missing. The groups themselves are only listed in
+     * the failure message and the {@code metricsFile} of the task.
+     * <p>
+     * Example: {@code skipIdenticalFiles = true}
+     *
+     * @return whether identical files should only be tokenized once
+     */
+    public Property<Boolean> getSkipIdenticalFiles() {
+        return skipIdenticalFiles;
+    }
+
     /**
      * Whether CPD should exit with status 4 (the default behavior, true)
      * if violations are found or just with 0 (to not break the build, e.g.).
@@ -216,4 +272,135 @@ public class CpdExtension extends CodeQualityExtension {
     public void setSkipBlocksPattern(String skipBlocksPattern) {
         this.skipBlocksPattern = skipBlocksPattern;
     }
+
+    /**
+     * Source files larger than this amount of bytes are skipped before tokenization, e.g. to exclude huge generated files which slow down
+     * the analysis and produce meaningless matches; defaults to {@code null} which means unlimited.
+     * <p>
+     * Example: {@code maxFileSizeBytes = 1024 * 1024}
+     *
+     * @return the maximum size of a source file in bytes, not present if unlimited
+     */
+    public Property<Long> getMaxFileSizeBytes() {
+        return maxFileSizeBytes;
+    }
+
+    /**
+     * Source files having more lines than this are skipped before tokenization; defaults to {@code null} which means unlimited.
+     * <p>
+     * Example: {@code maxFileLines = 10000}
+     *
+     * @return the maximum amount of lines of a source file, not present if unlimited
+     */
+    public Property<Integer> getMaxFileLines() {
+        return maxFileLines;
+    }
+
+    /**
+     * Whether source files which seem to be generated (e.g. by annotation processors, jOOQ, OpenAPI or protobuf) should be skipped before
+     * tokenization; defaults to {@code false}. A file is considered generated if its first {@code 16 KiB} contain {@link
+     * #generatedFilesPattern}.
+     * <p>
+     * Example: {@code skipGeneratedFiles = true}
+     *
+     * @return whether generated files should be skipped
+     * @see #generatedFilesPattern
+     */
+    public Property<Boolean> getSkipGeneratedFiles() {
+        return skipGeneratedFiles;
+    }
+
+    /**
+     * The regular expression to detect generated source files if enabled using {@link #skipGeneratedFiles}; defaults to a pattern matching
+     * {@code @Generated} annotations, {@code DO NOT EDIT} markers and comments like {@code This file was generated}.
+     * <p>
+     * Example: {@code generatedFilesPattern = '@Generated|This file was generated by .*'}
+     *
+     * @return the pattern used to detect generated files
+     * @see #skipGeneratedFiles
+     */
+    public Property<String> getGeneratedFilesPattern() {
+        return generatedFilesPattern;
+    }
+
+    /**
+     * Whether the analysis should run in a separate worker process instead of inside the Gradle daemon; defaults to {@code false}.
+     * <p>
+     * This allows to configure {@link #minHeapSize}, {@link #maxHeapSize} and {@link #jvmArgs} for the analysis independently of the
+     * daemon, which is recommended for large code bases. The worker process is kept alive by Gradle and reused by all tasks and builds
+     * with the same PMD classpath and fork options, such that loading PMD, its language modules and warming up the tokenizers is only
+     * paid for once.
+     * <p>
+     * Example: {@code processIsolation = true}
+     *
+     * @return whether the analysis runs in a separate process
+     */
+    public Property<Boolean> getProcessIsolation() {
+        return processIsolation;
+    }
+
+    /**
+     * The minimum heap size for the worker process if {@link #processIsolation} is enabled; defaults to {@code null} which means JVM
+     * default.
+     * <p>
+     * Example: {@code minHeapSize = '256m'}
+     *
+     * @return the minimum heap size of the worker process
+     */
+    public Property<String> getMinHeapSize() {
+        return minHeapSize;
+    }
+
+    /**
+     * The maximum heap size for the worker process if {@link #processIsolation} is enabled; defaults to {@code null} which means JVM
+     * default.
+     * <p>
+     * Example: {@code maxHeapSize = '2g'}
+     *
+     * @return the maximum heap size of the worker process
+     */
+    public Property<String> getMaxHeapSize() {
+        return maxHeapSize;
+    }
+
+    /**
+     * Additional JVM arguments for the worker process if {@link #processIsolation} is enabled; defaults to an empty list.
+     * <p>
+     * Example: {@code jvmArgs = ['-XX:+UseParallelGC']}
+     *
+     * @return the additional JVM arguments of the worker process
+     */
+    public ListProperty<String> getJvmArgs() {
+        return jvmArgs;
+    }
+
+    /**
+     * The baseline of known duplicates, written by the {@code cpdBaseline} task and read by all other {@link Cpd} tasks which then only
+     * report and fail on new duplicates; defaults to {@code null} which means that every duplicate is reported.
+     * <p>
+     * Example: {@code baselineFile = file('config/cpd/baseline.txt')}
+     *
+     * @return the file containing the baseline
+     */
+    public RegularFileProperty getBaselineFile() {
+        return baselineFile;
+    }
+
+    /**
+     * A git ref (e.g. {@code origin/main}) to only report duplicates affecting files changed since this ref, e.g. for pull request
+     * builds; defaults to {@code null} which means that all duplicates are reported. Like for a pull request, the files are compared with
+     * the merge base of the ref and {@code HEAD} (i.e. {@code git merge-base <ref> HEAD}), such that commits only contained in the ref do
+     * not count as changes. Requires {@code git} on the {@code PATH}. It is ignored by the {@code cpdBaseline} task as a baseline always
+     * contains all duplicates.
+     * <p>
+     * <b>Note:</b> This only filters the reported duplicates and does not speed up the analysis: all sources are still tokenized and
+     * analyzed unless no source file changed at all, and such tasks are neither up-to-date nor cached.
+     * <p>
+     * Example: {@code changedSinceRef = findProperty('cpdChangedSinceRef')}
+     *
+     * @return the git ref to compare with
+     */
+    public Property<String> getChangedSinceRef() {
+        return changedSinceRef;
+    }
 }
@@ -3,6 +3,7 @@ package de.aaschmid.gradle.plugins.cpd;
 import java.io.File;
 import java.util.Optional;
 
+import de.aaschmid.gradle.plugins.cpd.internal.CpdReportInternal;
 import org.gradle.api.Incubating;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
@@ -20,6 +21,7 @@ import org.gradle.api.plugins.JvmEcosystemPlugin;
 import org.gradle.api.plugins.ReportingBasePlugin;
 import org.gradle.api.provider.ProviderFactory;
 import org.gradle.api.reporting.ReportingExtension;
+import org.gradle.api.reporting.SingleFileReport;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.language.base.plugins.LifecycleBasePlugin;
 
@@ -41,6 +43,9 @@ import static java.util.Collections.reverseOrder;
  * The created {@link Cpd} task is added to the {@code check} lifecycle task of {@link LifecycleBasePlugin} if it is also applied, e.g.
  * using {@link org.gradle.api.plugins.JavaPlugin}.
  * <p>
+ * Additionally, a {@link CpdBaseline} task named {@code cpdBaseline} analyzing the same source code is created, which writes the
+ * duplicates currently found to {@link CpdExtension#getBaselineFile()}.
+ * <p>
  * Sample:
  *
  * <pre>
@@ -71,6 +76,7 @@ public class CpdPlugin implements Plugin<Project> {
 
     private static final Logger logger = Logging.getLogger(CpdPlugin.class);
     private static final String TASK_NAME_CPD_CHECK = "cpdCheck";
+    private static final String TASK_NAME_CPD_BASELINE = "cpdBaseline";
 
     @Override
     public void apply(Project project) {
@@ -120,6 +126,18 @@ public class CpdPlugin implements Plugin<Project> {
             taskMapping.map("skipBlocks", extension::isSkipBlocks);
             taskMapping.map("skipBlocksPattern", extension::getSkipBlocksPattern);
 
+            task.getSkipIdenticalFiles().convention(extension.getSkipIdenticalFiles());
+            task.getMaxFileSizeBytes().convention(extension.getMaxFileSizeBytes());
+            task.getMaxFileLines().convention(extension.getMaxFileLines());
+            task.getSkipGeneratedFiles().convention(extension.getSkipGeneratedFiles());
+            task.getGeneratedFilesPattern().convention(extension.getGeneratedFilesPattern());
+            task.getProcessIsolation().convention(extension.getProcessIsolation());
+            task.getMinHeapSize().convention(extension.getMinHeapSize());
+            task.getMaxHeapSize().convention(extension.getMaxHeapSize());
+            task.getJvmArgs().convention(extension.getJvmArgs());
+            task.getBaselineFile().convention(extension.getBaselineFile());
+            task.getChangedSinceRef().convention(extension.getChangedSinceRef());
+
             ConventionMapping extensionMapping = ((IConventionAware) extension).getConventionMapping();
             extensionMapping.map("reportsDir", () -> project.getExtensions().getByType(ReportingExtension.class).file("cpd"));
 
@@ -128,27 +146,48 @@ public class CpdPlugin implements Plugin<Project> {
             task.getReports().all(report -> {
                 report.getRequired().convention("xml".equals(report.getName()));
                 report.getOutputLocation().convention(layout.getProjectDirectory().file(providers.provider(() ->
-                    new File(extension.getReportsDir(), task.getName() + "." + report.getName()).getAbsolutePath())));
+                    new File(extension.getReportsDir(), task.getName() + "." + report.getName() + getCompressionSuffix(report)).getAbsolutePath())));
             });
         });
     }
 
+    private String getCompressionSuffix(SingleFileReport report) {
+        if (report instanceof CpdReportInternal && ((CpdReportInternal) report).isCompressed()) {
+            return ".gz";
+        }
+        return "";
+    }
+
     private void createTask(Project project) {
         TaskProvider<Cpd> taskProvider = project.getTasks().register(TASK_NAME_CPD_CHECK, Cpd.class, task -> {
             task.setDescription("Run CPD analysis for all sources");
-            project.getAllprojects().forEach(p ->
-                    p.getPlugins().withType(JavaBasePlugin.class, plugin ->
-                            p.getExtensions().getByType(JavaPluginExtension.class).getSourceSets().all(sourceSet ->
-                                    sourceSet.getAllJava().getSrcDirs().forEach(task::source)
-                            )
-                    )
-            );
+            addSourcesOfAllProjects(project, task);
+        });
+        TaskProvider<CpdBaseline> baselineTaskProvider = project.getTasks().register(TASK_NAME_CPD_BASELINE, CpdBaseline.class, task -> {
+            task.setDescription("Write the duplicates currently found by CPD for all sources as baseline");
+            addSourcesOfAllProjects(project, task);
+        });
+        // e.g. 'gradle cpdBaseline cpdCheck' should check against the freshly written baseline
+        project.getTasks().withType(Cpd.class).configureEach(task -> {
+            if (!(task instanceof CpdBaseline)) {
+                task.mustRunAfter(baselineTaskProvider);
+            }
         });
 
         project.getPlugins().withType(LifecycleBasePlugin.class, plugin ->
                 project.getTasks().named(LifecycleBasePlugin.CHECK_TASK_NAME).configure(t -> t.dependsOn(taskProvider)));
     }
 
+    private void addSourcesOfAllProjects(Project project, Cpd task) {
+        project.getAllprojects().forEach(p ->
+                p.getPlugins().withType(JavaBasePlugin.class, plugin ->
+                        p.getExtensions().getByType(JavaPluginExtension.class).getSourceSets().all(sourceSet ->
+                                task.source(sourceSet.getAllJava().getSourceDirectories())
+                        )
+                )
+        );
+    }
+
     private void checkThatCpdCheckWasAutomaticallyAddedToTaskGraphOrWarn(Project project) {
         project.getGradle().getTaskGraph().whenReady(graph -> {
             String projectPath = (project.getRootProject() == project) ? project.getPath() : project.getPath() + ":";
@@ -39,4 +39,17 @@ public interface CpdTextFileReport extends SingleFileReport {
      * @param lineSeparator to be used when generating the text report; defaults to {@link #DEFAULT_LINE_SEPARATOR}.
      */
     void setLineSeparator(String lineSeparator);
+
+    /**
+     * @return if the report should be written compressed using GZIP; defaults to {@code false}. If enabled, the default output location
+     * gets an additional {@code .gz} suffix.
+     */
+    @Input
+    boolean isCompressed();
+
+    /**
+     * @param compressed set to {@code true} if the report should be written compressed using GZIP, otherwise {@code false}; defaults to
+     * {@code false}.
+     */
+    void setCompressed(boolean compressed);
 }
@@ -25,4 +25,17 @@ public interface CpdXmlFileReport extends SingleFileReport {
      * @see Cpd#getEncoding()
      */
     void setEncoding(String encoding);
+
+    /**
+     * @return if the report should be written compressed using GZIP; defaults to {@code false}. If enabled, the default output location
+     * gets an additional {@code .gz} suffix.
+     */
+    @Input
+    boolean isCompressed();
+
+    /**
+     * @param compressed set to {@code true} if the report should be written compressed using GZIP, otherwise {@code false}; defaults to
+     * {@code false}.
+     */
+    void setCompressed(boolean compressed);
 }
@@ -8,6 +8,7 @@ import org.gradle.api.internal.provider.DefaultProvider;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.reporting.Report;
 import org.gradle.api.reporting.SingleFileReport;
+import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
 
@@ -19,6 +20,8 @@ public abstract class CpdReportInternal implements SingleFileReport {
     private final String name;
     private final Task task;
 
+    private boolean compressed = false;
+
     @Inject
     public CpdReportInternal(String name, Task task) {
         this.name = name;
@@ -90,4 +93,13 @@ public abstract class CpdReportInternal implements SingleFileReport {
         return OutputType.FILE;
     }
 
+    @Input
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
 }
@@ -5,7 +5,13 @@ import java.lang.reflect.UndeclaredThrowableException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import javax.inject.Inject;
 
@@ -13,6 +19,7 @@ import de.aaschmid.gradle.plugins.cpd.internal.worker.CpdWorkParameters.Report;
 import net.sourceforge.pmd.cpd.CPDConfiguration;
 import net.sourceforge.pmd.cpd.CPDReport;
 import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.cpd.Mark;
 import net.sourceforge.pmd.cpd.Match;
 import net.sourceforge.pmd.lang.LanguageRegistry;
 import org.gradle.api.GradleException;
@@ -20,6 +27,11 @@ import org.gradle.workers.WorkAction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
 public abstract class CpdAction implements WorkAction<CpdWorkParameters> {
 
     private static final Logger logger = LoggerFactory.getLogger(CpdAction.class);
@@ -41,13 +53,136 @@ public abstract class CpdAction implements WorkAction<CpdWorkParameters> {
 
     @Override
     public void execute() {
-        CPDReport cpdReport = executor.run(createCpdConfiguration(getParameters()), getParameters().getSourceFiles().getFiles());
-        reporter.generate(getParameters().getReportParameters().get(), cpdReport);
-        logResult(cpdReport.getMatches());
+        CpdMetrics metrics = new CpdMetrics();
+        Set<File> sourceFiles = filterSourceFiles(metrics);
+
+        List<List<File>> identicalFileGroups = emptyList();
+        if (getParameters().getSkipIdenticalFiles().get()) {
+            CpdIdenticalFiles identicalFiles = CpdIdenticalFiles.detect(sourceFiles, metrics);
+            sourceFiles = identicalFiles.getDistinctFiles();
+            identicalFileGroups = identicalFiles.getIdenticalFileGroups();
+        }
+
+        boolean writeBaseline = getParameters().getWriteBaseline().get();
+        Set<File> changedFiles = null;
+        String changedSinceRef = getParameters().getChangedSinceRef().getOrNull();
+        if (changedSinceRef != null && !writeBaseline) { // a baseline must contain all duplicates, not only the changed ones
+            changedFiles = new CpdChangedFiles(getParameters().getProjectDirectory().get().getAsFile()).since(changedSinceRef);
+            if (!containsAny(changedFiles, sourceFiles)) {
+                if (logger.isInfoEnabled()) {
+                    logger.info("Skipping CPD analysis as no source file changed since '{}'.", changedSinceRef);
+                }
+                sourceFiles = emptySet();
+            }
+        }
+
+        CPDReport cpdReport = executor.run(createCpdConfiguration(getParameters()), sourceFiles, metrics);
+        identicalFileGroups = retainIdenticalFilesReachingMinimumTokenCount(cpdReport, identicalFileGroups);
+        if (changedFiles != null) {
+            cpdReport = retainChangedMatches(cpdReport, changedFiles, changedSinceRef);
+            identicalFileGroups = retainChangedIdenticalFiles(identicalFileGroups, changedFiles);
+        }
+
+        File baselineFile = getParameters().getBaselineFile().getAsFile().getOrNull();
+        if (baselineFile != null && writeBaseline) {
+            writeBaseline(cpdReport, identicalFileGroups, baselineFile);
+        } else if (baselineFile != null) {
+            Set<String> baseline = CpdBaselineFingerprints.load(baselineFile);
+            CpdBaselineFingerprints fingerprints = new CpdBaselineFingerprints(cpdReport,
+                    getParameters().getProjectDirectory().get().getAsFile());
+            cpdReport = removeBaselineMatches(cpdReport, baseline, fingerprints, baselineFile);
+            identicalFileGroups = removeBaselineIdenticalFiles(identicalFileGroups, baseline, fingerprints, baselineFile);
+        }
+
+        reporter.generate(getParameters().getReportParameters().get(), cpdReport, metrics);
+        writeMetrics(metrics);
+        if (!writeBaseline) {
+            logResult(cpdReport.getMatches(), identicalFileGroups);
+        }
+    }
+
+    private static boolean containsAny(Set<File> changedFiles, Set<File> sourceFiles) {
+        return sourceFiles.stream().map(CpdChangedFiles::normalize).anyMatch(changedFiles::contains);
+    }
+
+    private CPDReport retainChangedMatches(CPDReport cpdReport, Set<File> changedFiles, String changedSinceRef) {
+        CPDReport result = cpdReport.filterMatches(match -> {
+            for (Mark mark : match) {
+                if (changedFiles.contains(CpdChangedFiles.normalize(new File(mark.getLocation().getFileId().getAbsolutePath())))) {
+                    return true;
+                }
+            }
+            return false;
+        });
+        int ignoredMatches = cpdReport.getMatches().size() - result.getMatches().size();
+        if (logger.isInfoEnabled()) {
+            logger.info("Ignoring {} duplicates not affecting any file changed since '{}'.", ignoredMatches, changedSinceRef);
+        }
+        return result;
+    }
+
+    /** Identical files are only duplicates in terms of CPD if their content, i.e. their tokenized first file, is large enough. */
+    private List<List<File>> retainIdenticalFilesReachingMinimumTokenCount(CPDReport cpdReport, List<List<File>> identicalFileGroups) {
+        if (identicalFileGroups.isEmpty()) {
+            return identicalFileGroups;
+        }
+        Map<File, Integer> tokensPerFile = new HashMap<>();
+        cpdReport.getNumberOfTokensPerFile().forEach((fileId, tokens) ->
+                tokensPerFile.put(CpdChangedFiles.normalize(new File(fileId.getAbsolutePath())), tokens));
+
+        int minimumTokenCount = getParameters().getMinimumTokenCount().get();
+        List<List<File>> result = identicalFileGroups.stream()
+                .filter(identicalFiles -> tokensPerFile.getOrDefault(CpdChangedFiles.normalize(identicalFiles.get(0)), 0) >= minimumTokenCount)
+                .collect(toList());
+        int ignoredGroups = identicalFileGroups.size() - result.size();
+        if (logger.isInfoEnabled()) {
+            logger.info("Ignoring {} groups of identical files having less than {} tokens.", ignoredGroups, minimumTokenCount);
+        }
+        return result;
+    }
+
+    private static List<List<File>> retainChangedIdenticalFiles(List<List<File>> identicalFileGroups, Set<File> changedFiles) {
+        return identicalFileGroups.stream()
+                .filter(identicalFiles -> identicalFiles.stream().map(CpdChangedFiles::normalize).anyMatch(changedFiles::contains))
+                .collect(toList());
+    }
+
+    private void writeBaseline(CPDReport cpdReport, List<List<File>> identicalFileGroups, File baselineFile) {
+        new CpdBaselineFingerprints(cpdReport, getParameters().getProjectDirectory().get().getAsFile()).write(baselineFile,
+                cpdReport.getMatches(), identicalFileGroups);
+        if (logger.isInfoEnabled()) {
+            logger.info("Wrote {} duplicates and {} groups of identical files as CPD baseline to {}.", cpdReport.getMatches().size(),
+                    identicalFileGroups.size(), asClickableFileUrl(baselineFile));
+        }
+    }
+
+    private CPDReport removeBaselineMatches(CPDReport cpdReport, Set<String> baseline, CpdBaselineFingerprints fingerprints,
+            File baselineFile) {
+        CPDReport result = cpdReport.filterMatches(match -> !baseline.contains(fingerprints.fingerprint(match)));
+        int ignoredMatches = cpdReport.getMatches().size() - result.getMatches().size();
+        if (logger.isInfoEnabled()) {
+            logger.info("Ignoring {} duplicates contained in CPD baseline {}.", ignoredMatches, asClickableFileUrl(baselineFile));
+        }
+        return result;
+    }
+
+    private List<List<File>> removeBaselineIdenticalFiles(List<List<File>> identicalFileGroups, Set<String> baseline,
+            CpdBaselineFingerprints fingerprints, File baselineFile) {
+        List<List<File>> result = identicalFileGroups.stream()
+                .filter(identicalFiles -> !baseline.contains(fingerprints.fingerprint(identicalFiles)))
+                .collect(toList());
+        int ignoredGroups = identicalFileGroups.size() - result.size();
+        if (logger.isInfoEnabled()) {
+            logger.info("Ignoring {} groups of identical files contained in CPD baseline {}.", ignoredGroups,
+                    asClickableFileUrl(baselineFile));
+        }
+        return result;
     }
 
     private CPDConfiguration createCpdConfiguration(CpdWorkParameters config) {
-        CPDConfiguration result = new CPDConfiguration();
+        Set<Language> languages = createLanguages(config.getLanguage().get());
+
+        CPDConfiguration result = (languages.size() == 1) ? new CPDConfiguration() : new CPDConfiguration(new LanguageRegistry(languages));
         result.setSourceEncoding(getEncoding(config));
         result.setFailOnError(config.getFailOnError().get());
         result.setFailOnViolation(config.getFailOnViolation().get());
@@ -56,24 +191,60 @@ public abstract class CpdAction implements WorkAction<CpdWorkParameters> {
         result.setIgnoreLiterals(config.getIgnoreLiterals().get());
         result.setNoSkipBlocks(!config.getSkipBlocks().get());
         result.setSkipBlocksPattern(config.getSkipBlocksPattern().get());
-        result.setOnlyRecognizeLanguage(createLanguage(config.getLanguage().get()));
+        if (languages.size() == 1) {
+            result.setOnlyRecognizeLanguage(languages.iterator().next());
+        }
         result.setMinimumTileSize(config.getMinimumTokenCount().get());
         result.setSkipDuplicates(config.getSkipDuplicateFiles().get());
         return result;
     }
 
-    private void logResult(List<Match> matches) {
-        if (matches.isEmpty()) {
+    private Set<File> filterSourceFiles(CpdMetrics metrics) {
+        Pattern generatedFilesPattern = getParameters().getSkipGeneratedFiles().get()
+                ? Pattern.compile(getParameters().getGeneratedFilesPattern().get())
+                : null;
+        CpdSourceFileFilter filter = new CpdSourceFileFilter(getParameters().getMaxFileSizeBytes().getOrNull(),
+                getParameters().getMaxFileLines().getOrNull(), generatedFilesPattern, getEncoding(getParameters()));
+        return filter.filter(getParameters().getSourceFiles().getFiles(), metrics);
+    }
+
+    private void writeMetrics(CpdMetrics metrics) {
+        metrics.sampleHeapUsage();
+        if (logger.isDebugEnabled()) {
+            logger.debug("CPD metrics: {}", metrics.toJson());
+        }
+        File metricsFile = getParameters().getMetricsFile().getAsFile().getOrNull();
+        if (metricsFile != null) {
+            metrics.writeTo(metricsFile);
+        }
+    }
+
+    private void logResult(List<Match> matches, List<List<File>> identicalFileGroups) {
+        for (List<File> identicalFiles : identicalFileGroups) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("CPD found identical files, reported duplicates of the first one also apply to the others: {}",
+                        identicalFiles.stream().map(File::getAbsolutePath).collect(joining(", ")));
+            }
+        }
+
+        if (matches.isEmpty() && identicalFileGroups.isEmpty()) {
             if (logger.isInfoEnabled()) {
                 logger.info("No duplicates over {} tokens found.", getParameters().getMinimumTokenCount().get());
             }
         } else {
-            String message = "CPD found duplicate code.";
+            List<String> hints = new ArrayList<>();
             Report report = getParameters().getReportParameters().get().get(0);
-            if (report != null) {
+            if (!matches.isEmpty() && report != null) {
                 File reportUrl = report.getDestination();
-                message += " See the report at " + asClickableFileUrl(reportUrl);
+                hints.add("See the report at " + asClickableFileUrl(reportUrl));
             }
+            if (!identicalFileGroups.isEmpty()) {
+                // reports only contain the first file of each group, so do not refer to them for identical files
+                hints.add("Found identical files which are not contained in any report: " + identicalFileGroups.stream()
+                        .map(files -> files.stream().map(File::getAbsolutePath).collect(joining(", ", "[", "]")))
+                        .collect(joining(", ")));
+            }
+            String message = "CPD found duplicate code." + hints.stream().map(hint -> " " + hint).collect(joining("."));
             if (getParameters().getIgnoreFailures().get()) {
                 if (logger.isWarnEnabled()) {
                     logger.warn(message);
@@ -84,6 +255,18 @@ public abstract class CpdAction implements WorkAction<CpdWorkParameters> {
         }
     }
 
+    /**
+     * @param languages comma separated list of CPD language ids, e.g. {@code "java"} or {@code "java,kotlin"}
+     * @return the requested languages
+     */
+    private Set<Language> createLanguages(String languages) {
+        Set<Language> result = new LinkedHashSet<>();
+        for (String language : languages.split(",")) {
+            result.add(createLanguage(language.trim()));
+        }
+        return result;
+    }
+
     private Language createLanguage(String language) {
         Language result = LanguageRegistry.CPD.getLanguageById(language);
         if (result == null) {
@@ -0,0 +1,164 @@
+package de.aaschmid.gradle.plugins.cpd.internal.worker;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.sourceforge.pmd.cpd.CPDReport;
+import net.sourceforge.pmd.cpd.Mark;
+import net.sourceforge.pmd.cpd.Match;
+import org.gradle.api.GradleException;
+
+/**
+ * Fingerprints of found duplicates which are used as baseline, such that only new duplicates fail the build.
+ * <p>
+ * A fingerprint consists of a hash of the whitespace normalized duplicated code, its token count and the sorted paths (relative to the
+ * project directory) of all files containing it. It is therefore stable if the duplicated code only moves within its files. The baseline
+ * is loaded into a {@link HashSet} such that the lookup for each match is O(1).
+ * <p>
+ * Groups of identical files found by {@code skipIdenticalFiles} are not contained in any match. Their fingerprint therefore consists of a
+ * hash of the file content, the marker {@value #IDENTICAL_FILES} instead of a token count and the sorted relative paths of the files.
+ */
+class CpdBaselineFingerprints {
+
+    private static final char SEPARATOR = '\t';
+    private static final String IDENTICAL_FILES = "identical";
+
+    private final CPDReport cpdReport;
+    private final File projectDir;
+
+    CpdBaselineFingerprints(CPDReport cpdReport, File projectDir) {
+        this.cpdReport = cpdReport;
+        this.projectDir = projectDir;
+    }
+
+    static Set<String> load(File baselineFile) {
+        Set<String> result = new HashSet<>();
+        if (!baselineFile.exists()) {
+            return result;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(baselineFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    result.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not read CPD baseline '%s'.", baselineFile), e);
+        }
+        return result;
+    }
+
+    void write(File baselineFile, List<Match> matches, List<List<File>> identicalFileGroups) {
+        Set<String> fingerprints = new TreeSet<>();
+        for (Match match : matches) {
+            fingerprints.add(fingerprint(match));
+        }
+        for (List<File> identicalFiles : identicalFileGroups) {
+            fingerprints.add(fingerprint(identicalFiles));
+        }
+        try {
+            Files.createDirectories(baselineFile.getAbsoluteFile().getParentFile().toPath());
+            try (Writer writer = Files.newBufferedWriter(baselineFile.toPath(), StandardCharsets.UTF_8)) {
+                for (String fingerprint : fingerprints) {
+                    writer.write(fingerprint);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not write CPD baseline '%s'.", baselineFile), e);
+        }
+    }
+
+    String fingerprint(Match match) {
+        StringBuilder result = new StringBuilder()
+                .append(hash(normalizeWhitespaces(cpdReport.getSourceCodeSlice(match.getFirstMark()))))
+                .append(SEPARATOR)
+                .append(match.getTokenCount());
+
+        Set<String> files = new TreeSet<>();
+        for (Mark mark : match) {
+            files.add(relativePath(mark.getLocation().getFileId().getAbsolutePath()));
+        }
+        return appendFiles(result, files);
+    }
+
+    String fingerprint(List<File> identicalFiles) {
+        StringBuilder result = new StringBuilder()
+                .append(hash(readContent(identicalFiles.get(0))))
+                .append(SEPARATOR)
+                .append(IDENTICAL_FILES);
+
+        Set<String> files = new TreeSet<>();
+        for (File file : identicalFiles) {
+            files.add(relativePath(file.getAbsolutePath()));
+        }
+        return appendFiles(result, files);
+    }
+
+    private static String appendFiles(StringBuilder result, Set<String> files) {
+        for (String file : files) {
+            result.append(SEPARATOR).append(file);
+        }
+        return result.toString();
+    }
+
+    private String relativePath(String absolutePath) {
+        Path root = projectDir.toPath().toAbsolutePath();
+        Path file = Paths.get(absolutePath).toAbsolutePath();
+        String result = file.startsWith(root) ? root.relativize(file).toString() : file.toString();
+        return result.replace(File.separatorChar, '/');
+    }
+
+    private static String normalizeWhitespaces(CharSequence code) {
+        StringBuilder result = new StringBuilder(code.length());
+        boolean whitespace = false;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (Character.isWhitespace(c)) {
+                whitespace = result.length() > 0;
+            } else {
+                if (whitespace) {
+                    result.append(' ');
+                    whitespace = false;
+                }
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private static byte[] readContent(File file) {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not read content of '%s'.", file), e);
+        }
+    }
+
+    private static String hash(String content) {
+        return hash(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return String.format("%016x", new BigInteger(1, digest).shiftRight(192).longValue());
+        } catch (NoSuchAlgorithmException e) {
+            throw new GradleException("Could not hash duplicated code as SHA-256 is not available.", e);
+        }
+    }
+}
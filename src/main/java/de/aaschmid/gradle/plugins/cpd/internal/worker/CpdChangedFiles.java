@@ -0,0 +1,92 @@
+package de.aaschmid.gradle.plugins.cpd.internal.worker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.gradle.api.GradleException;
+
+/**
+ * Determines the files changed within a git working tree compared to a given ref using the {@code git} command line, i.e. modified,
+ * added and untracked but not ignored files.
+ * <p>
+ * Like a pull request, the working tree is compared with the merge base of the ref and {@code HEAD}, such that commits only contained in
+ * the ref (e.g. merged into {@code origin/main} after branching off) do not count as changes.
+ */
+class CpdChangedFiles {
+
+    private final File projectDir;
+
+    CpdChangedFiles(File projectDir) {
+        this.projectDir = projectDir;
+    }
+
+    /**
+     * @param ref the git ref whose merge base with {@code HEAD} the working tree is compared with, e.g. {@code origin/main}
+     * @return the absolute and normalized changed files (may contain files which are no source files)
+     */
+    Set<File> since(String ref) {
+        if (ref.startsWith("-")) { // would be interpreted as option by git
+            throw new GradleException(String.format("Invalid git ref '%s' as it starts with '-'.", ref));
+        }
+        String mergeBase = git("merge-base", ref, "HEAD").trim();
+
+        Set<File> result = new HashSet<>();
+        addFiles(result, git("diff", "--name-only", "--relative", "--diff-filter=d", mergeBase, "--"));
+        addFiles(result, git("ls-files", "--others", "--exclude-standard"));
+        return result;
+    }
+
+    private void addFiles(Set<File> result, String gitOutput) {
+        for (String line : gitOutput.split("\n")) {
+            if (!line.trim().isEmpty()) {
+                result.add(normalize(new File(projectDir, line.trim())));
+            }
+        }
+    }
+
+    private String git(String... arguments) {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.add("-c");
+        command.add("core.quotePath=false");
+        command.addAll(Arrays.asList(arguments));
+        try {
+            Process process = new ProcessBuilder(command).directory(projectDir).redirectErrorStream(true).start();
+            String output = read(process.getInputStream());
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new GradleException(String.format("Could not determine changed files using '%s' (exit code %d): %s",
+                        String.join(" ", command), exitCode, output.trim().split("\n")[0]));
+            }
+            return output;
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not determine changed files using '%s'.", String.join(" ", command)), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException(String.format("Interrupted while determining changed files using '%s'.", String.join(" ", command)),
+                    e);
+        }
+    }
+
+    private static String read(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+        }
+        return new String(result.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    static File normalize(File file) {
+        return file.getAbsoluteFile().toPath().normalize().toFile();
+    }
+}
@@ -3,11 +3,14 @@ package de.aaschmid.gradle.plugins.cpd.internal.worker;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 import net.sourceforge.pmd.cpd.CPDConfiguration;
+import net.sourceforge.pmd.cpd.CPDListener;
 import net.sourceforge.pmd.cpd.CPDReport;
 import net.sourceforge.pmd.cpd.CpdAnalysis;
 import org.gradle.api.GradleException;
@@ -18,14 +21,14 @@ class CpdExecutor {
 
     private static final Logger logger = Logging.getLogger(CpdExecutor.class);
 
-    CPDReport run(CPDConfiguration cpdConfig, Set<File> sourceFiles) {
+    CPDReport run(CPDConfiguration cpdConfig, Set<File> sourceFiles, CpdMetrics metrics) {
         if (logger.isInfoEnabled()) {
             logger.info("Starting CPD, minimumTokenCount is {}", cpdConfig.getMinimumTileSize());
         }
 
         try (CpdAnalysis cpd = CpdAnalysis.create(cpdConfig)) {
-            tokenizeSourceFiles(cpd, sourceFiles);
-            return analyzeSourceCode(cpd)
+            tokenizeSourceFiles(cpd, sourceFiles, metrics);
+            return analyzeSourceCode(cpd, metrics)
                     .orElseThrow(() -> new GradleException("Analysis did not produce any result"));
         } catch (IOException e) {
             throw new GradleException("Exception during CPD execution: " + e.getMessage(), e);
@@ -34,19 +37,25 @@ class CpdExecutor {
         }
     }
 
-    private void tokenizeSourceFiles(CpdAnalysis cpd, Set<File> sourceFiles) throws IOException {
+    private void tokenizeSourceFiles(CpdAnalysis cpd, Set<File> sourceFiles, CpdMetrics metrics) throws IOException {
+        long start = System.currentTimeMillis();
         for (File file : sourceFiles) {
             if (logger.isDebugEnabled()) {
                 logger.debug("Tokenize {}", file.getAbsolutePath());
             }
             cpd.files().addFile(file.toPath());
         }
+        metrics.recordSourceFiles(sourceFiles.size());
+        metrics.recordPhase("fileCollection", System.currentTimeMillis() - start);
     }
 
-    private Optional<CPDReport> analyzeSourceCode(CpdAnalysis cpd) {
+    private Optional<CPDReport> analyzeSourceCode(CpdAnalysis cpd, CpdMetrics metrics) {
         if (logger.isInfoEnabled()) {
             logger.info("Starting to analyze code");
         }
+        PhaseListener phaseListener = new PhaseListener(metrics);
+        cpd.setCpdListener(phaseListener);
+
         List<CPDReport> cpdReports = new ArrayList<>();
         long start = System.currentTimeMillis();
         cpd.performAnalysis(cpdReports::add);
@@ -56,9 +65,50 @@ class CpdExecutor {
         if (logger.isInfoEnabled()) {
             logger.info("Successfully analyzed code - took {} milliseconds", timeTaken);
         }
+
+        // tokenization is done as soon as the match algorithm starts hashing, if it never started, everything was tokenization
+        long tokenizationStop = (phaseListener.hashStart > 0) ? phaseListener.hashStart : stop;
+        metrics.recordPhase("tokenization", tokenizationStop - start);
+        metrics.recordPhase("matchDetection", stop - tokenizationStop);
+
         if (cpdReports.isEmpty()) {
             return Optional.empty();
         }
-        return Optional.of(cpdReports.get(0));
+        CPDReport result = cpdReports.get(0);
+        recordResult(result, metrics);
+        return Optional.of(result);
+    }
+
+    private void recordResult(CPDReport cpdReport, CpdMetrics metrics) {
+        Map<String, Integer> tokensPerFile = new LinkedHashMap<>();
+        cpdReport.getNumberOfTokensPerFile().forEach((fileId, tokens) -> tokensPerFile.put(fileId.getAbsolutePath(), tokens));
+        metrics.recordTokensPerFile(tokensPerFile);
+        metrics.recordMatches(cpdReport.getMatches().size());
+    }
+
+    /**
+     * Remembers when CPD finished tokenizing, i.e. started to hash the tokens in order to find matches, and samples the heap usage on
+     * every phase change (all tokens are in memory from then on).
+     */
+    private static class PhaseListener implements CPDListener {
+        private final CpdMetrics metrics;
+        private long hashStart;
+
+        private PhaseListener(CpdMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void addedFile(int fileCount) {
+            // not required
+        }
+
+        @Override
+        public void phaseUpdate(int phase) {
+            metrics.sampleHeapUsage();
+            if (phase == CPDListener.HASH) {
+                hashStart = System.currentTimeMillis();
+            }
+        }
     }
 }
@@ -0,0 +1,100 @@
+package de.aaschmid.gradle.plugins.cpd.internal.worker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * Detects source files with exactly the same content such that each distinct content only has to be tokenized once.
+ * <p>
+ * Note: Only files having the same length are hashed at all, so this is cheap for the common case of mostly distinct files.
+ * <p>
+ * As only the first file of each group is tokenized, the reports only contain duplicates of this file. Hence, the groups are logged,
+ * written to the metrics and mentioned in the failure message instead.
+ */
+class CpdIdenticalFiles {
+
+    private static final Logger logger = Logging.getLogger(CpdIdenticalFiles.class);
+
+    private final Set<File> distinctFiles;
+    private final List<List<File>> identicalFileGroups;
+
+    private CpdIdenticalFiles(Set<File> distinctFiles, List<List<File>> identicalFileGroups) {
+        this.distinctFiles = distinctFiles;
+        this.identicalFileGroups = identicalFileGroups;
+    }
+
+    static CpdIdenticalFiles detect(Set<File> sourceFiles, CpdMetrics metrics) {
+        long start = System.nanoTime();
+
+        Map<Long, List<File>> filesByLength = new LinkedHashMap<>();
+        for (File file : sourceFiles) {
+            filesByLength.computeIfAbsent(file.length(), length -> new ArrayList<>()).add(file);
+        }
+
+        Map<String, List<File>> filesByHash = new LinkedHashMap<>();
+        for (List<File> files : filesByLength.values()) {
+            for (File file : files) {
+                String key = (files.size() == 1) ? file.getAbsolutePath() : file.length() + ":" + hash(file);
+                filesByHash.computeIfAbsent(key, k -> new ArrayList<>()).add(file);
+            }
+        }
+
+        Set<File> distinctFiles = new LinkedHashSet<>();
+        List<List<File>> identicalFileGroups = new ArrayList<>();
+        for (List<File> files : filesByHash.values()) {
+            distinctFiles.add(files.get(0));
+            if (files.size() > 1) {
+                identicalFileGroups.add(files);
+            }
+        }
+
+        int skipped = sourceFiles.size() - distinctFiles.size();
+        if (skipped > 0 && logger.isInfoEnabled()) {
+            logger.info("Tokenizing only {} of {} source files as the others are identical to one of them.", distinctFiles.size(),
+                    sourceFiles.size());
+        }
+        metrics.recordSkippedFiles("identical", skipped);
+        metrics.recordIdenticalFiles(identicalFileGroups);
+        metrics.recordPhase("identicalFilesDetection", (System.nanoTime() - start) / 1_000_000);
+        return new CpdIdenticalFiles(distinctFiles, identicalFileGroups);
+    }
+
+    private static String hash(File file) {
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return new BigInteger(1, digest.digest()).toString(16);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new GradleException(String.format("Could not hash content of '%s'.", file), e);
+        }
+    }
+
+    /** @return the source files to be tokenized, i.e. the first file of every distinct content */
+    Set<File> getDistinctFiles() {
+        return distinctFiles;
+    }
+
+    /** @return groups of at least two files having exactly the same content */
+    List<List<File>> getIdenticalFileGroups() {
+        return identicalFileGroups;
+    }
+}
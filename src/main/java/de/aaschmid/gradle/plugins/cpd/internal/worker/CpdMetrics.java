@@ -0,0 +1,199 @@
+package de.aaschmid.gradle.plugins.cpd.internal.worker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.stream.Collectors;
+
+import org.gradle.api.GradleException;
+
+/**
+ * Collects timings, sizes and memory usage of a single CPD execution such that they can be logged and written as JSON file.
+ * <p>
+ * The peak heap usage is sampled whenever a phase or report is recorded. It does not reset the JVM wide peak usage of the memory pools
+ * as the analysis usually runs within the Gradle daemon next to other tasks.
+ */
+class CpdMetrics {
+
+    /** Amount of files listed as the ones with the most tokens. */
+    private static final int LARGEST_FILES_COUNT = 20;
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+    private final List<ReportMetrics> reports = new ArrayList<>();
+    private final Map<String, Integer> skippedFiles = new LinkedHashMap<>();
+    private final List<List<String>> identicalFiles = new ArrayList<>();
+
+    private int sourceFiles;
+    private long tokens;
+    private int matches;
+    private Map<String, Integer> largestFiles = new LinkedHashMap<>();
+    private long peakHeapBytes = -1;
+
+    CpdMetrics() {
+        sampleHeapUsage();
+    }
+
+    void recordPhase(String phase, long millis) {
+        phaseMillis.put(phase, millis);
+        sampleHeapUsage();
+    }
+
+    void recordSourceFiles(int sourceFiles) {
+        this.sourceFiles = sourceFiles;
+    }
+
+    void recordSkippedFiles(String reason, int count) {
+        skippedFiles.put(reason, count);
+    }
+
+    void recordIdenticalFiles(List<List<File>> identicalFileGroups) {
+        for (List<File> files : identicalFileGroups) {
+            identicalFiles.add(files.stream().map(File::getAbsolutePath).collect(Collectors.toList()));
+        }
+    }
+
+    void recordMatches(int matches) {
+        this.matches = matches;
+    }
+
+    void recordTokensPerFile(Map<String, Integer> tokensPerFile) {
+        this.tokens = tokensPerFile.values().stream().mapToLong(Integer::longValue).sum();
+        this.largestFiles = tokensPerFile.entrySet().stream()
+                .sorted(Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()).thenComparing(Entry.comparingByKey()))
+                .limit(LARGEST_FILES_COUNT)
+                .collect(Collectors.toMap(Entry::getKey, Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    void recordReport(String type, File destination, long millis) {
+        reports.add(new ReportMetrics(type, destination, millis, destination.length()));
+        sampleHeapUsage();
+    }
+
+    void sampleHeapUsage() {
+        peakHeapBytes = Math.max(peakHeapBytes, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+    }
+
+    long getTotalMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    void writeTo(File file) {
+        try {
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(toJson());
+            }
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not write CPD metrics to '%s'.", file), e);
+        }
+    }
+
+    String toJson() {
+        StringBuilder result = new StringBuilder();
+        result.append("{\n");
+        result.append("  \"totalMillis\": ").append(getTotalMillis()).append(",\n");
+        result.append("  \"sourceFiles\": ").append(sourceFiles).append(",\n");
+
+        result.append("  \"skippedFiles\": {");
+        appendEntries(result, skippedFiles);
+        result.append("},\n");
+
+        result.append("  \"identicalFiles\": [");
+        for (int i = 0; i < identicalFiles.size(); i++) {
+            result.append(i == 0 ? "\n" : ",\n");
+            result.append("    [").append(identicalFiles.get(i).stream().map(CpdMetrics::quote).collect(Collectors.joining(", "))).append("]");
+        }
+        result.append(identicalFiles.isEmpty() ? "],\n" : "\n  ],\n");
+
+        result.append("  \"tokens\": ").append(tokens).append(",\n");
+        result.append("  \"matches\": ").append(matches).append(",\n");
+        result.append("  \"peakHeapBytes\": ").append(peakHeapBytes).append(",\n");
+
+        result.append("  \"phaseMillis\": {");
+        appendEntries(result, phaseMillis);
+        result.append("},\n");
+
+        result.append("  \"reports\": [");
+        for (int i = 0; i < reports.size(); i++) {
+            ReportMetrics report = reports.get(i);
+            result.append(i == 0 ? "\n" : ",\n");
+            result.append("    { \"type\": ").append(quote(report.type))
+                    .append(", \"file\": ").append(quote(report.destination.getAbsolutePath()))
+                    .append(", \"millis\": ").append(report.millis)
+                    .append(", \"bytes\": ").append(report.bytes).append(" }");
+        }
+        result.append(reports.isEmpty() ? "],\n" : "\n  ],\n");
+
+        result.append("  \"largestFilesByTokens\": {");
+        appendEntries(result, largestFiles);
+        result.append("}\n");
+        result.append("}\n");
+        return result.toString();
+    }
+
+    private void appendEntries(StringBuilder result, Map<String, ? extends Number> entries) {
+        boolean first = true;
+        for (Entry<String, ? extends Number> entry : entries.entrySet()) {
+            result.append(first ? "\n" : ",\n");
+            result.append("    ").append(quote(entry.getKey())).append(": ").append(entry.getValue());
+            first = false;
+        }
+        if (!entries.isEmpty()) {
+            result.append("\n  ");
+        }
+    }
+
+    private static String quote(String value) {
+        StringBuilder result = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    result.append("\\\"");
+                    break;
+                case '\\':
+                    result.append("\\\\");
+                    break;
+                case '\n':
+                    result.append("\\n");
+                    break;
+                case '\r':
+                    result.append("\\r");
+                    break;
+                case '\t':
+                    result.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        result.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        result.append(c);
+                    }
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    private static class ReportMetrics {
+        private final String type;
+        private final File destination;
+        private final long millis;
+        private final long bytes;
+
+        private ReportMetrics(String type, File destination, long millis, long bytes) {
+            this.type = type;
+            this.destination = destination;
+            this.millis = millis;
+            this.bytes = bytes;
+        }
+    }
+}
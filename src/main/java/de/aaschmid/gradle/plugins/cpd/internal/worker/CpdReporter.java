@@ -1,12 +1,18 @@
 package de.aaschmid.gradle.plugins.cpd.internal.worker;
 
-import java.io.FileWriter;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
 
 import de.aaschmid.gradle.plugins.cpd.internal.worker.CpdWorkParameters.Report;
-import de.aaschmid.gradle.plugins.cpd.internal.worker.CpdWorkParameters.Report.Xml;
 import net.sourceforge.pmd.cpd.CPDReport;
 import net.sourceforge.pmd.cpd.CPDReportRenderer;
 import net.sourceforge.pmd.cpd.CSVRenderer;
@@ -21,27 +27,44 @@ class CpdReporter {
 
     private static final Logger logger = Logging.getLogger(CpdReporter.class);
 
-    void generate(List<Report> reports, CPDReport cpdReport) {
+    /** Large buffer to reduce the number of write calls for big reports, e.g. on network file systems. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    void generate(List<Report> reports, CPDReport cpdReport, CpdMetrics metrics) {
         if (logger.isInfoEnabled()) {
             logger.info("Generating reports");
         }
-        for (Report report : reports) {
-            CPDReportRenderer renderer = createRendererFor(report);
-            try (FileWriter fileWriter = new FileWriter(report.getDestination())) {
-
-                ClassLoader previousContextClassLoader = Thread.currentThread().getContextClassLoader();
-                try {
-                    // Workaround for Gradle Worker API using special class loader which Xerces dynamic implementation loading does not like
-                    Thread.currentThread().setContextClassLoader(this.getClass().getClassLoader());
-
-                    renderer.render(cpdReport, fileWriter);
-                } finally {
-                    Thread.currentThread().setContextClassLoader(previousContextClassLoader);
-                }
-            } catch (IOException e) {
-                throw new GradleException(e.getMessage(), e);
+        reports.forEach(report -> generate(report, cpdReport, metrics));
+    }
+
+    private void generate(Report report, CPDReport cpdReport, CpdMetrics metrics) {
+        long start = System.currentTimeMillis();
+        CPDReportRenderer renderer = createRendererFor(report);
+        try (Writer writer = createWriterFor(report)) {
+
+            ClassLoader previousContextClassLoader = Thread.currentThread().getContextClassLoader();
+            try {
+                // Workaround for Gradle Worker API using special class loader which Xerces dynamic implementation loading does not like
+                Thread.currentThread().setContextClassLoader(this.getClass().getClassLoader());
+
+                renderer.render(cpdReport, writer);
+            } finally {
+                Thread.currentThread().setContextClassLoader(previousContextClassLoader);
             }
+        } catch (IOException e) {
+            throw new GradleException(e.getMessage(), e);
+        }
+        metrics.recordReport(report.getClass().getSimpleName().toLowerCase(Locale.ROOT), report.getDestination(),
+                System.currentTimeMillis() - start);
+    }
+
+    private Writer createWriterFor(Report report) throws IOException {
+        Charset charset = Charset.forName(report.getEncoding());
+        OutputStream outputStream = Files.newOutputStream(report.getDestination().toPath());
+        if (report.isCompressed()) {
+            outputStream = new GZIPOutputStream(outputStream, BUFFER_SIZE);
         }
+        return new BufferedWriter(new OutputStreamWriter(outputStream, charset), BUFFER_SIZE);
     }
 
     /**
@@ -77,7 +100,7 @@ class CpdReporter {
             return new VSRenderer();
 
         } else if (report instanceof Report.Xml) {
-            String encoding = ((Xml) report).getEncoding();
+            String encoding = report.getEncoding();
             if (logger.isDebugEnabled()) {
                 logger.debug("Creating XML renderer to generate with encoding '{}'.", encoding);
             }
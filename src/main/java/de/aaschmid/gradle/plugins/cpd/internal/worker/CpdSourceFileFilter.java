@@ -0,0 +1,133 @@
+package de.aaschmid.gradle.plugins.cpd.internal.worker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * Cheaply filters source files which should not be handed over to CPD, e.g. huge generated files which blow up the token array and
+ * produce meaningless matches.
+ */
+class CpdSourceFileFilter {
+
+    private static final Logger logger = Logging.getLogger(CpdSourceFileFilter.class);
+
+    /** Amount of bytes at the beginning of a file which are searched for the generated files pattern. */
+    static final int GENERATED_HEADER_BYTES = 16 * 1024;
+
+    private final Long maxFileSizeBytes;
+    private final Integer maxFileLines;
+    private final Pattern generatedFilesPattern;
+    private final Charset encoding;
+
+    /**
+     * @param maxFileSizeBytes      files larger than this are skipped; {@code null} for unlimited
+     * @param maxFileLines          files having more lines than this are skipped; {@code null} for unlimited
+     * @param generatedFilesPattern files containing this pattern within their header are skipped; {@code null} to keep generated files
+     * @param encoding              encoding used to decode the header and count the lines of a file
+     */
+    CpdSourceFileFilter(Long maxFileSizeBytes, Integer maxFileLines, Pattern generatedFilesPattern, Charset encoding) {
+        this.maxFileSizeBytes = maxFileSizeBytes;
+        this.maxFileLines = maxFileLines;
+        this.generatedFilesPattern = generatedFilesPattern;
+        this.encoding = encoding;
+    }
+
+    Set<File> filter(Set<File> sourceFiles, CpdMetrics metrics) {
+        Set<File> result = new LinkedHashSet<>();
+        int skippedBySize = 0;
+        int skippedByLines = 0;
+        int skippedGenerated = 0;
+        long skippedGeneratedBytes = 0;
+        for (File file : sourceFiles) {
+            if (maxFileSizeBytes != null && file.length() > maxFileSizeBytes) {
+                logSkipped(file, "it is larger than " + maxFileSizeBytes + " bytes");
+                skippedBySize++;
+
+            } else if (maxFileLines != null && exceedsLineCount(file, maxFileLines)) {
+                logSkipped(file, "it has more than " + maxFileLines + " lines");
+                skippedByLines++;
+
+            } else if (generatedFilesPattern != null && isGenerated(file)) {
+                logSkipped(file, "it seems to be generated");
+                skippedGenerated++;
+                skippedGeneratedBytes += file.length();
+
+            } else {
+                result.add(file);
+            }
+        }
+
+        if ((skippedBySize > 0 || skippedByLines > 0) && logger.isInfoEnabled()) {
+            logger.info("Skipped {} of {} source files because of 'maxFileSizeBytes' and {} because of 'maxFileLines'.", skippedBySize,
+                    sourceFiles.size(), skippedByLines);
+        }
+        metrics.recordSkippedFiles("maxFileSizeBytes", skippedBySize);
+        metrics.recordSkippedFiles("maxFileLines", skippedByLines);
+        if (generatedFilesPattern != null) {
+            if (skippedGenerated > 0 && logger.isInfoEnabled()) {
+                logger.info("Skipped {} generated source files which saved tokenizing {} bytes.", skippedGenerated, skippedGeneratedBytes);
+            }
+            metrics.recordSkippedFiles("generated", skippedGenerated);
+        }
+        return result;
+    }
+
+    private boolean isGenerated(File file) {
+        byte[] header = new byte[GENERATED_HEADER_BYTES];
+        int length = 0;
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            int read;
+            while (length < header.length && (read = inputStream.read(header, length, header.length - length)) != -1) {
+                length += read;
+            }
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not read header of '%s'.", file), e);
+        }
+        return generatedFilesPattern.matcher(new String(header, 0, length, encoding)).find();
+    }
+
+    /**
+     * Counts line feeds of the file decoded using the configured encoding, i.e. also for non ASCII compatible encodings like UTF-16, and
+     * stops as soon as the limit is exceeded. A last line without trailing line feed is counted as well, a trailing line feed does not
+     * start a new line.
+     */
+    private boolean exceedsLineCount(File file, int maxLines) {
+        char[] buffer = new char[8192];
+        int lines = 0;
+        char last = '\n';
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file.toPath()), encoding)) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n' && ++lines > maxLines) {
+                        return true;
+                    }
+                }
+                if (read > 0) {
+                    last = buffer[read - 1];
+                }
+            }
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not count lines of '%s'.", file), e);
+        }
+        return last != '\n' && lines + 1 > maxLines;
+    }
+
+    private void logSkipped(File file, String reason) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Skipping {} because {}.", file.getAbsolutePath(), reason);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import java.io.File;
 import java.io.Serializable;
 
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.workers.WorkParameters;
@@ -36,28 +38,60 @@ public interface CpdWorkParameters extends WorkParameters {
 
     Property<Boolean> getSkipDuplicateFiles();
 
+    Property<Boolean> getSkipIdenticalFiles();
+
+    Property<Long> getMaxFileSizeBytes();
+
+    Property<Integer> getMaxFileLines();
+
+    Property<Boolean> getSkipGeneratedFiles();
+
+    Property<String> getGeneratedFilesPattern();
+
     ConfigurableFileCollection getSourceFiles();
 
     ListProperty<Report> getReportParameters();
 
+    RegularFileProperty getMetricsFile();
+
+    RegularFileProperty getBaselineFile();
+
+    Property<Boolean> getWriteBaseline();
+
+    DirectoryProperty getProjectDirectory();
+
+    Property<String> getChangedSinceRef();
+
 
     abstract class Report implements Serializable {
         private final File destination;
+        private final String encoding;
+        private final boolean compressed;
 
-        Report(File destination) {
+        Report(File destination, String encoding, boolean compressed) {
             this.destination = requireNonNull(destination, "'destination' must not be null for any report.");
+            this.encoding = requireNonNull(encoding, "'encoding' must not be null for any report.");
+            this.compressed = compressed;
         }
 
         File getDestination() {
             return destination;
         }
 
+        String getEncoding() {
+            return encoding;
+        }
+
+        boolean isCompressed() {
+            return compressed;
+        }
+
         public static class Csv extends Report {
             private final Character separator;
             private final boolean includeLineCount;
 
-            public Csv(File destination, Character separator, boolean includeLineCount) {
-                super(destination);
+            public Csv(File destination, String encoding, boolean compressed, Character separator, boolean includeLineCount) {
+                super(destination, encoding, compressed);
                 this.separator = separator;
                 this.includeLineCount = includeLineCount;
             }
@@ -75,8 +109,9 @@ public interface CpdWorkParameters extends WorkParameters {
             private final String lineSeparator;
             private final boolean trimLeadingCommonSourceWhitespaces;
 
-            public Text(File destination, String lineSeparator, boolean trimLeadingCommonSourceWhitespaces) {
-                super(destination);
+            public Text(File destination, String encoding, boolean compressed, String lineSeparator,
+                    boolean trimLeadingCommonSourceWhitespaces) {
+                super(destination, encoding, compressed);
                 this.lineSeparator = lineSeparator;
                 this.trimLeadingCommonSourceWhitespaces = trimLeadingCommonSourceWhitespaces;
             }
@@ -91,21 +126,14 @@ public interface CpdWorkParameters extends WorkParameters {
         }
 
         public static class Vs extends Report {
-            public Vs(File destination) {
-                super(destination);
+            public Vs(File destination, String encoding, boolean compressed) {
+                super(destination, encoding, compressed);
             }
         }
 
         public static class Xml extends Report {
-            private final String encoding;
-
-            public Xml(File destination, String encoding) {
-                super(destination);
-                this.encoding = encoding;
-            }
-
-            String getEncoding() {
-                return encoding;
+            public Xml(File destination, String encoding, boolean compressed) {
+                super(destination, encoding, compressed);
             }
         }
     }
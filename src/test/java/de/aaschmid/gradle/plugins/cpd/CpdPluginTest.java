@@ -34,6 +34,7 @@ import static de.aaschmid.gradle.plugins.cpd.test.TestFileResolver.Lang.JAVA;
 import static de.aaschmid.gradle.plugins.cpd.test.TestFileResolver.createProjectFiles;
 import static de.aaschmid.gradle.plugins.cpd.test.TestFileResolver.testFile;
 import static de.aaschmid.gradle.plugins.cpd.test.TestFileResolver.testFilesRecurseIn;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @ExtendWith(GradleExtension.class)
@@ -56,8 +57,19 @@ class CpdPluginTest {
         assertThat(cpd.getLanguage()).isEqualTo("java");
         assertThat(cpd.getMinimumTokenCount()).isEqualTo(50);
         assertThat(cpd.isSkipDuplicateFiles()).isFalse();
+        assertThat(cpd.getSkipIdenticalFiles().get()).isFalse();
         assertThat(cpd.isSkipBlocks()).isTrue();
         assertThat(cpd.getSkipBlocksPattern()).isEqualTo(CpdLanguagePropertiesDefaults.DEFAULT_SKIP_BLOCKS_PATTERN);
+        assertThat(cpd.getMaxFileSizeBytes().isPresent()).isFalse();
+        assertThat(cpd.getMaxFileLines().isPresent()).isFalse();
+        assertThat(cpd.getSkipGeneratedFiles().get()).isFalse();
+        assertThat(cpd.getGeneratedFilesPattern().get()).contains("Generated", "DO NOT EDIT");
+        assertThat(cpd.getProcessIsolation().get()).isFalse();
+        assertThat(cpd.getMinHeapSize().isPresent()).isFalse();
+        assertThat(cpd.getMaxHeapSize().isPresent()).isFalse();
+        assertThat(cpd.getJvmArgs().get()).isEmpty();
+        assertThat(cpd.getBaselineFile().isPresent()).isFalse();
+        assertThat(cpd.getChangedSinceRef().isPresent()).isFalse();
         assertThat(cpd.getToolVersion()).isEqualTo("7.7.0");
     }
 
@@ -103,8 +115,18 @@ class CpdPluginTest {
         assertThat(t.getReports().getXml().getRequired().get()).isTrue();
 
         assertThat(t.getSkipDuplicateFiles()).isFalse();
+        assertThat(t.getSkipIdenticalFiles().get()).isFalse();
         assertThat(t.getSkipBlocks()).isTrue();
         assertThat(t.getSkipBlocksPattern()).isEqualTo(CpdLanguagePropertiesDefaults.DEFAULT_SKIP_BLOCKS_PATTERN);
+        assertThat(t.getMaxFileSizeBytes().isPresent()).isFalse();
+        assertThat(t.getMaxFileLines().isPresent()).isFalse();
+        assertThat(t.getSkipGeneratedFiles().get()).isFalse();
+        assertThat(t.getGeneratedFilesPattern().get()).contains("Generated", "DO NOT EDIT");
+
+        assertThat(t.getProcessIsolation().get()).isFalse();
+        assertThat(t.getMinHeapSize().isPresent()).isFalse();
+        assertThat(t.getMaxHeapSize().isPresent()).isFalse();
+        assertThat(t.getJvmArgs().get()).isEmpty();
 
         assertThat(t.getSource()).isEmpty();
     }
@@ -141,12 +163,37 @@ class CpdPluginTest {
         assertThat(t.getReports().getXml().getRequired().get()).isTrue();
 
         assertThat(t.getSkipDuplicateFiles()).isFalse();
+        assertThat(t.getSkipIdenticalFiles().get()).isFalse();
         assertThat(t.getSkipBlocks()).isTrue();
         assertThat(t.getSkipBlocksPattern()).isEqualTo(CpdLanguagePropertiesDefaults.DEFAULT_SKIP_BLOCKS_PATTERN);
+        assertThat(t.getMaxFileSizeBytes().isPresent()).isFalse();
+        assertThat(t.getMaxFileLines().isPresent()).isFalse();
+        assertThat(t.getSkipGeneratedFiles().get()).isFalse();
+        assertThat(t.getGeneratedFilesPattern().get()).contains("Generated", "DO NOT EDIT");
+
+        assertThat(t.getProcessIsolation().get()).isFalse();
+        assertThat(t.getMinHeapSize().isPresent()).isFalse();
+        assertThat(t.getMaxHeapSize().isPresent()).isFalse();
+        assertThat(t.getJvmArgs().get()).isEmpty();
 
         assertThat(t.getSource()).isEmpty();
     }
 
+    @Test
+    void CpdPlugin_shouldAddGzSuffixToDefaultOutputLocationOfCompressedReports(Project project, TaskProvider<Cpd> cpdCheck) {
+        // When:
+        cpdCheck.configure(task -> task.reports(reports -> {
+            reports.getCsv().setCompressed(true);
+            reports.getXml().setCompressed(true);
+        }));
+
+        // Then:
+        CpdReports actual = cpdCheck.get().getReports();
+        assertThat(actual.getCsv().getOutputLocation().get().getAsFile()).isEqualTo(project.file("build/reports/cpd/cpdCheck.csv.gz"));
+        assertThat(actual.getText().getOutputLocation().get().getAsFile()).isEqualTo(project.file("build/reports/cpd/cpdCheck.text"));
+        assertThat(actual.getXml().getOutputLocation().get().getAsFile()).isEqualTo(project.file("build/reports/cpd/cpdCheck.xml.gz"));
+    }
+
     @SuppressWarnings("UnstableApiUsage")
     static Stream<Class<? extends Plugin<?>>> CpdPlugin_shouldAddCpdCheckTaskAsDependencyOfCheckLifecycleTaskIfPluginIsApplied() {
         return Stream.of(
@@ -175,6 +222,40 @@ class CpdPluginTest {
         assertThat(dependencies).contains(cpdCheck.get());
     }
 
+    @Test
+    void CpdPlugin_shouldCreateCpdBaselineTaskWithSameSourcesButNotAsDependencyOfCheckLifecycleTask(Project project, CpdExtension cpd,
+            TaskProvider<Cpd> cpdCheck) {
+        // Given:
+        File baselineFile = project.file("config/cpd/baseline.txt");
+        cpd.getBaselineFile().set(baselineFile);
+
+        // When:
+        project.getPlugins().apply(JavaPlugin.class);
+        project.getExtensions().getByType(JavaPluginExtension.class).getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME, sourceSet ->
+                sourceSet.getJava().srcDir(testFile(JAVA, "de/aaschmid/clazz")));
+
+        // Then:
+        CpdBaseline cpdBaseline = project.getTasks().named("cpdBaseline", CpdBaseline.class).get();
+        assertThat(cpdBaseline.getBaselineFile().get().getAsFile()).isEqualTo(baselineFile);
+        assertThat(cpdBaseline.getSource()).containsExactlyInAnyOrderElementsOf(cpdCheck.get().getSource());
+        assertThat(cpdCheck.get().getBaselineFile().get().getAsFile()).isEqualTo(baselineFile);
+
+        Task check = project.getTasks().getByName("check");
+        //noinspection unchecked
+        assertThat((Set<Task>) check.getTaskDependencies().getDependencies(check)).doesNotContain(cpdBaseline);
+    }
+
+    @Test
+    void CpdPlugin_shouldRunCpdCheckAfterCpdBaselineIfBothAreRequested(Project project, TaskProvider<Cpd> cpdCheck) {
+        // When:
+        CpdBaseline cpdBaseline = project.getTasks().named("cpdBaseline", CpdBaseline.class).get();
+
+        // Then:
+        //noinspection unchecked
+        assertThat((Set<Task>) cpdCheck.get().getMustRunAfter().getDependencies(cpdCheck.get())).containsExactly(cpdBaseline);
+        assertThat(cpdBaseline.getMustRunAfter().getDependencies(cpdBaseline)).isEmpty();
+    }
+
     @Test
     void CpdPlugin_shouldAddCpdCheckTaskAsDependencyOfCheckLifecycleTaskIfJavaPluginIsApplied(Project project, TaskProvider<Cpd> cpdCheck) {
         // When:
@@ -218,6 +299,20 @@ class CpdPluginTest {
         assertThat(cpd.get().getSource()).containsExactlyInAnyOrderElementsOf(expected);
     }
 
+    @Test
+    void CpdPlugin_shouldAddSourceDirectoriesLazilyEvenIfAddedAfterCpdCheckIsRealized(Project project, TaskProvider<Cpd> cpd) {
+        // Given:
+        project.getPlugins().apply(JavaPlugin.class);
+        Cpd task = cpd.get();
+
+        // When:
+        project.getExtensions().getByType(JavaPluginExtension.class).getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME, sourceSet ->
+                sourceSet.getJava().srcDir(testFile(JAVA, "de/aaschmid/clazz")));
+
+        // Then:
+        assertThat(task.getSource()).containsExactlyInAnyOrderElementsOf(testFilesRecurseIn(JAVA, "de/aaschmid/clazz"));
+    }
+
     @Test
     void CpdPlugin_shouldAddSourcesOfSubProjectsEvenIfAppliedOnlyOnParentProject(Project project, TaskProvider<Cpd> cpdCheck) {
         // When:
@@ -291,8 +386,18 @@ class CpdPluginTest {
         cpd.setMinimumTokenCount(25);
         cpd.setReportsDir(project.file("cpd-reports"));
         cpd.setSkipDuplicateFiles(true);
+        cpd.getSkipIdenticalFiles().set(true);
         cpd.setSkipBlocks(false);
         cpd.setSkipBlocksPattern("<|>");
+        cpd.getMaxFileSizeBytes().set(1024L);
+        cpd.getMaxFileLines().set(100);
+        cpd.getSkipGeneratedFiles().set(true);
+        cpd.getGeneratedFilesPattern().set("@Generated");
+        cpd.getProcessIsolation().set(true);
+        cpd.getMinHeapSize().set("128m");
+        cpd.getMaxHeapSize().set("1g");
+        cpd.getJvmArgs().set(singletonList("-XX:+UseSerialGC"));
+        cpd.getChangedSinceRef().set("origin/main");
 
         // When:
         Cpd task = cpdCheck.get();
@@ -312,8 +417,35 @@ class CpdPluginTest {
         assertThat(task.getReports().getVs().getOutputLocation().get().getAsFile()).isEqualTo(project.file("cpd-reports/cpdCheck.vs"));
         assertThat(task.getReports().getXml().getOutputLocation().get().getAsFile()).isEqualTo(project.file("cpd-reports/cpdCheck.xml"));
         assertThat(task.getSkipDuplicateFiles()).isTrue();
+        assertThat(task.getSkipIdenticalFiles().get()).isTrue();
         assertThat(task.getSkipBlocks()).isFalse();
         assertThat(task.getSkipBlocksPattern()).isEqualTo("<|>");
+        assertThat(task.getMaxFileSizeBytes().get()).isEqualTo(1024L);
+        assertThat(task.getMaxFileLines().get()).isEqualTo(100);
+        assertThat(task.getSkipGeneratedFiles().get()).isTrue();
+        assertThat(task.getGeneratedFilesPattern().get()).isEqualTo("@Generated");
+        assertThat(task.getProcessIsolation().get()).isTrue();
+        assertThat(task.getMinHeapSize().get()).isEqualTo("128m");
+        assertThat(task.getMaxHeapSize().get()).isEqualTo("1g");
+        assertThat(task.getJvmArgs().get()).containsExactly("-XX:+UseSerialGC");
+        assertThat(task.getChangedSinceRef().get()).isEqualTo("origin/main");
+    }
+
+    @Test
+    void CpdPlugin_shouldLazilyApplyPropertiesOfExtensionSetAfterTaskWasRealized(Project project, CpdExtension cpd,
+            TaskProvider<Cpd> cpdCheck) {
+        // Given:
+        Cpd task = cpdCheck.get();
+
+        // When:
+        cpd.getMaxFileLines().set(100);
+        cpd.getBaselineFile().set(project.file("config/cpd/baseline.txt"));
+        cpd.getChangedSinceRef().set(project.provider(() -> "origin/main"));
+
+        // Then:
+        assertThat(task.getMaxFileLines().get()).isEqualTo(100);
+        assertThat(task.getBaselineFile().get().getAsFile()).isEqualTo(project.file("config/cpd/baseline.txt"));
+        assertThat(task.getChangedSinceRef().get()).isEqualTo("origin/main");
     }
 
     @Test
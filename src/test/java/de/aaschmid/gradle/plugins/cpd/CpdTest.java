@@ -94,6 +94,10 @@ class CpdTest {
             task.setSkipDuplicateFiles(true);
             task.setSkipBlocks(false);
             task.setSkipBlocksPattern("<template|>");
+            task.getProcessIsolation().set(true);
+            task.getMinHeapSize().set("64m");
+            task.getMaxHeapSize().set("512m");
+            task.getJvmArgs().set(asList("-XX:+UseParallelGC", "-Xss2m"));
         });
 
         // Then:
@@ -111,6 +115,10 @@ class CpdTest {
         assertThat(actual.getSkipDuplicateFiles()).isTrue();
         assertThat(actual.getSkipBlocks()).isFalse();
         assertThat(actual.getSkipBlocksPattern()).isEqualTo("<template|>");
+        assertThat(actual.getProcessIsolation().get()).isTrue();
+        assertThat(actual.getMinHeapSize().get()).isEqualTo("64m");
+        assertThat(actual.getMaxHeapSize().get()).isEqualTo("512m");
+        assertThat(actual.getJvmArgs().get()).containsExactly("-XX:+UseParallelGC", "-Xss2m");
     }
 
     @Test
@@ -121,6 +129,7 @@ class CpdTest {
             reports.getCsv().getRequired().set(true);
             reports.getCsv().setSeparator(';');
             reports.getCsv().setIncludeLineCount(false);
+            reports.getCsv().setCompressed(true);
 
             reports.getText().getOutputLocation().set(project.file(project.getBuildDir() + "/cpdCheck.text"));
             reports.getText().getRequired().set(true);
@@ -141,15 +150,18 @@ class CpdTest {
         assertThat(actual.getCsv().getRequired().get()).isTrue();
         assertThat(actual.getCsv().getSeparator()).isEqualTo(';');
         assertThat(actual.getCsv().isIncludeLineCount()).isFalse();
+        assertThat(actual.getCsv().isCompressed()).isTrue();
         assertThat(actual.getText().getOutputLocation().get().getAsFile()).isEqualTo(project.file("build/cpdCheck.text"));
         assertThat(actual.getText().getRequired().get()).isTrue();
         assertThat(actual.getText().getLineSeparator()).isEqualTo("-_-");
         assertThat(actual.getText().getTrimLeadingCommonSourceWhitespaces()).isTrue();
+        assertThat(actual.getText().isCompressed()).isFalse();
         assertThat(actual.getVs().getOutputLocation().get().getAsFile()).isEqualTo(project.file("cpdCheck.vs"));
         assertThat(actual.getVs().getRequired().get()).isTrue();
         assertThat(actual.getXml().getOutputLocation().get().getAsFile()).isEqualTo(project.file("build/reports/cpdCheck.xml"));
         assertThat(actual.getXml().getRequired().get()).isFalse();
         assertThat(actual.getXml().getEncoding()).isEqualTo("UTF-16");
+        assertThat(actual.getXml().isCompressed()).isFalse();
     }
 
     @Test
@@ -165,7 +177,7 @@ class CpdTest {
         Cpd actual = cpdCheck.get();
 
         // Expect:
-        assertThat(actual.getInputs().getProperties()).hasSize(51);
+        assertThat(actual.getInputs().getProperties()).hasSize(61);
         assertThat(actual.getInputs().getSourceFiles()).containsExactlyInAnyOrderElementsOf(testFilesRecurseIn(JAVA, "de/aaschmid/clazz"));
     }
 
@@ -193,6 +205,40 @@ class CpdTest {
         );
     }
 
+    @Test
+    void Cpd_shouldHaveMetricsFileAsTaskOutputIfConfigured(Project project, TaskProvider<Cpd> cpdCheck) {
+        // Given:
+        cpdCheck.configure(task -> {
+            task.getMetricsFile().set(project.file("cpdCheck-metrics.json"));
+            task.source(testFile(JAVA, "."));
+        });
+        Cpd actual = cpdCheck.get();
+
+        // Expect:
+        assertThat(actual.getOutputs().getFiles()).containsExactlyInAnyOrder(
+                project.file("cpdCheck-metrics.json"),
+                project.file(project.getBuildDir() + "/reports/cpd/cpdCheck.csv"),
+                project.file(project.getBuildDir() + "/reports/cpd/cpdCheck.text"),
+                project.file(project.getBuildDir() + "/reports/cpd/cpdCheck.vs"),
+                project.file(project.getBuildDir() + "/reports/cpd/cpdCheck.xml")
+        );
+    }
+
+    @Test
+    void Cpd_shouldHaveBaselineFileAsTaskInputButAsTaskOutputOfCpdBaseline(Project project, TaskProvider<Cpd> cpdCheck) {
+        // Given:
+        File baselineFile = project.file("config/cpd/baseline.txt");
+        createProjectFiles(project, "config/cpd/baseline.txt");
+        cpdCheck.configure(task -> task.getBaselineFile().set(baselineFile));
+        CpdBaseline cpdBaseline = project.getTasks().named("cpdBaseline", CpdBaseline.class).get();
+        cpdBaseline.getBaselineFile().set(baselineFile);
+
+        // Expect:
+        assertThat(cpdCheck.get().getInputs().getFiles()).contains(baselineFile);
+        assertThat(cpdCheck.get().getOutputs().getFiles()).doesNotContain(baselineFile);
+        assertThat(cpdBaseline.getOutputs().getFiles()).contains(baselineFile);
+    }
+
     @Test
     void Cpd_shouldThrowInvalidUserDataExceptionIfMinimumTokenCountIsMinusOne(TaskProvider<Cpd> cpdCheck) {
         // Given:
@@ -205,6 +251,68 @@ class CpdTest {
                 .hasMessageMatching("Task 'cpdCheck' requires 'minimumTokenCount' to be greater than zero.");
     }
 
+    @Test
+    void Cpd_shouldThrowInvalidUserDataExceptionIfMaxFileSizeBytesIsZero(TaskProvider<Cpd> cpdCheck) {
+        // Given:
+        cpdCheck.configure(task -> task.getMaxFileSizeBytes().set(0L));
+        Cpd actual = cpdCheck.get();
+
+        // Expect:
+        assertThatThrownBy(() -> actual.getActions().forEach(a -> a.execute(actual)))
+                .isInstanceOf(InvalidUserDataException.class)
+                .hasMessageMatching("Task 'cpdCheck' requires 'maxFileSizeBytes' to be greater than zero.");
+    }
+
+    @Test
+    void Cpd_shouldThrowInvalidUserDataExceptionIfMaxFileLinesIsZero(TaskProvider<Cpd> cpdCheck) {
+        // Given:
+        cpdCheck.configure(task -> task.getMaxFileLines().set(0));
+        Cpd actual = cpdCheck.get();
+
+        // Expect:
+        assertThatThrownBy(() -> actual.getActions().forEach(a -> a.execute(actual)))
+                .isInstanceOf(InvalidUserDataException.class)
+                .hasMessageMatching("Task 'cpdCheck' requires 'maxFileLines' to be greater than zero.");
+    }
+
+    @Test
+    void Cpd_shouldThrowInvalidUserDataExceptionIfChangedSinceRefStartsWithDash(TaskProvider<Cpd> cpdCheck) {
+        // Given:
+        cpdCheck.configure(task -> task.getChangedSinceRef().set("--output=foo"));
+        Cpd actual = cpdCheck.get();
+
+        // Expect:
+        assertThatThrownBy(() -> actual.getActions().forEach(a -> a.execute(actual)))
+                .isInstanceOf(InvalidUserDataException.class)
+                .hasMessageMatching("Task 'cpdCheck' requires 'changedSinceRef' to be a git ref not starting with '-'.");
+    }
+
+    @Test
+    void Cpd_shouldThrowInvalidUserDataExceptionIfGeneratedFilesPatternIsInvalid(TaskProvider<Cpd> cpdCheck) {
+        // Given:
+        cpdCheck.configure(task -> {
+            task.getSkipGeneratedFiles().set(true);
+            task.getGeneratedFilesPattern().set("@Generated(");
+        });
+        Cpd actual = cpdCheck.get();
+
+        // Expect:
+        assertThatThrownBy(() -> actual.getActions().forEach(a -> a.execute(actual)))
+                .isInstanceOf(InvalidUserDataException.class)
+                .hasMessage("Task 'cpdCheck' requires 'generatedFilesPattern' to be a valid regular expression.");
+    }
+
+    @Test
+    void Cpd_shouldThrowInvalidUserDataExceptionIfBaselineFileIsMissingForCpdBaseline(Project project) {
+        // Given:
+        CpdBaseline actual = project.getTasks().named("cpdBaseline", CpdBaseline.class).get();
+
+        // Expect:
+        assertThatThrownBy(() -> actual.getActions().forEach(a -> a.execute(actual)))
+                .isInstanceOf(InvalidUserDataException.class)
+                .hasMessage("Task 'cpdBaseline' requires 'baselineFile' to be set.");
+    }
+
     @Test
     void Cpd_shouldThrowInvalidUserDataExceptionIfTwoReportsAreEnabled(TaskProvider<Cpd> cpdCheck) {
         // Given:
@@ -6,11 +6,13 @@ import net.sourceforge.pmd.cpd.CPDConfiguration;
 import net.sourceforge.pmd.cpd.CPDReport;
 import net.sourceforge.pmd.cpd.Match;
 import net.sourceforge.pmd.lang.LanguageVersionDiscoverer;
+import net.sourceforge.pmd.lang.document.FileId;
 import org.gradle.api.GradleException;
 import org.gradle.api.Project;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InOrder;
@@ -19,18 +21,27 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 
 import static de.aaschmid.gradle.plugins.cpd.test.PropertyUtils.listProperty;
 import static de.aaschmid.gradle.plugins.cpd.test.PropertyUtils.property;
 import static de.aaschmid.gradle.plugins.cpd.test.TestFileResolver.Lang.JAVA;
 import static de.aaschmid.gradle.plugins.cpd.test.TestFileResolver.testFile;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.contentOf;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -61,17 +72,17 @@ class CpdActionTest {
                 return parameters;
             }
         };
-        when(executor.run(any(), any())).thenReturn(mock(CPDReport.class));
+        when(executor.run(any(), any(), any())).thenReturn(mock(CPDReport.class));
     }
 
     @Test
     void execute_shouldForwardCallCorrectly(Project project) {
         // Given:
         Set<File> sourceFiles = singleton(testFile(JAVA, "de/aaschmid/clazz/Clazz.java"));
-        List<Report> reports = singletonList(new Report.Csv(new File("cpd.csv"), ';', true));
+        List<Report> reports = singletonList(new Report.Csv(new File("cpd.csv"), "UTF-8", false, ';', true));
 
         CPDReport cpdReport = mockReportFor(mock(Match.class));
-        when(executor.run(any(), eq(sourceFiles))).thenReturn(cpdReport);
+        when(executor.run(any(), eq(sourceFiles), any())).thenReturn(cpdReport);
 
         stubParametersWithDefaults(project);
         when(parameters.getIgnoreFailures()).thenReturn(property(true));
@@ -83,18 +94,18 @@ class CpdActionTest {
 
         // Then:
         InOrder inOrder = Mockito.inOrder(executor, reporter);
-        inOrder.verify(executor).run(cpdConfiguration.capture(), eq(sourceFiles));
-        inOrder.verify(reporter).generate(reports, cpdReport);
+        inOrder.verify(executor).run(cpdConfiguration.capture(), eq(sourceFiles), any());
+        inOrder.verify(reporter).generate(eq(reports), eq(cpdReport), any());
         inOrder.verifyNoMoreInteractions();
     }
 
     @Test
     void execute_shouldThrowGradleExceptionIfIgnoreFailuresIsFalse(Project project) {
         // Given:
-        Report.Xml report = new Report.Xml(new File("cpd.xml"), "UTF-8");
+        Report.Xml report = new Report.Xml(new File("cpd.xml"), "UTF-8", false);
 
         CPDReport cpdReport = mockReportFor(mock(Match.class));
-        when(executor.run(any(), any())).thenReturn(cpdReport);
+        when(executor.run(any(), any(), any())).thenReturn(cpdReport);
 
         stubParametersWithDefaults(project);
         when(parameters.getIgnoreFailures()).thenReturn(property(false));
@@ -106,6 +117,174 @@ class CpdActionTest {
                 .hasMessageMatching("CPD found duplicate code\\. See the report at file://.+/cpd.xml");
     }
 
+    @Test
+    void execute_shouldTokenizeIdenticalFilesOnlyOnceAndFailIfIgnoreFailuresIsFalse(Project project, @TempDir Path tempDir)
+            throws IOException {
+        // Given:
+        File original = Files.write(tempDir.resolve("Original.java"), "class Clazz {}".getBytes(StandardCharsets.UTF_8)).toFile();
+        File copy = Files.write(tempDir.resolve("Copy.java"), "class Clazz {}".getBytes(StandardCharsets.UTF_8)).toFile();
+
+        CPDReport cpdReport = mock(CPDReport.class);
+        when(cpdReport.getNumberOfTokensPerFile()).thenReturn(tokensPerFile(original, 15));
+        when(executor.run(any(), any(), any())).thenReturn(cpdReport);
+
+        stubParametersWithDefaults(project);
+        when(parameters.getIgnoreFailures()).thenReturn(property(false));
+        when(parameters.getSkipIdenticalFiles()).thenReturn(property(true));
+        when(parameters.getSourceFiles()).thenReturn(project.files(original, copy));
+
+        // Expect:
+        assertThatThrownBy(() -> underTest.execute())
+                .isInstanceOf(GradleException.class)
+                .hasMessageMatching("CPD found duplicate code\\. Found identical files which are not contained in any report: "
+                        + "\\[.+Original\\.java, .+Copy\\.java\\]")
+                .hasMessageNotContaining("See the report");
+        verify(executor).run(any(), eq(singleton(original)), any());
+    }
+
+    @Test
+    void execute_shouldNotFailForIdenticalFilesHavingLessTokensThanMinimumTokenCount(Project project, @TempDir Path tempDir)
+            throws IOException {
+        // Given:
+        File original = Files.write(tempDir.resolve("First.java"), "package a;".getBytes(StandardCharsets.UTF_8)).toFile();
+        File copy = Files.write(tempDir.resolve("Second.java"), "package a;".getBytes(StandardCharsets.UTF_8)).toFile();
+
+        CPDReport cpdReport = mock(CPDReport.class);
+        when(cpdReport.getNumberOfTokensPerFile()).thenReturn(tokensPerFile(original, 14));
+        when(executor.run(any(), any(), any())).thenReturn(cpdReport);
+
+        stubParametersWithDefaults(project);
+        when(parameters.getSkipIdenticalFiles()).thenReturn(property(true));
+        when(parameters.getSourceFiles()).thenReturn(project.files(original, copy));
+
+        // When:
+        underTest.execute();
+
+        // Then:
+        verify(executor).run(any(), eq(singleton(original)), any());
+        verify(reporter).generate(any(), eq(cpdReport), any());
+    }
+
+    @Test
+    void execute_shouldWriteBaselineInsteadOfFailingIfWriteBaselineIsEnabled(Project project, @TempDir Path tempDir) {
+        // Given:
+        File baselineFile = tempDir.resolve("baseline.txt").toFile();
+        CPDReport cpdReport = mock(CPDReport.class);
+        Match match = CpdBaselineFingerprintsTest.mockMatch(cpdReport, "int a = 1;", 20, new File(tempDir.toFile(), "A.java"),
+                new File(tempDir.toFile(), "B.java"));
+        when(cpdReport.getMatches()).thenReturn(singletonList(match));
+        when(executor.run(any(), any(), any())).thenReturn(cpdReport);
+
+        stubParametersWithDefaults(project);
+        when(parameters.getBaselineFile()).thenReturn(project.getObjects().fileProperty().fileValue(baselineFile));
+        when(parameters.getWriteBaseline()).thenReturn(property(true));
+        when(parameters.getProjectDirectory()).thenReturn(project.getObjects().directoryProperty().fileValue(tempDir.toFile()));
+
+        // When:
+        underTest.execute();
+
+        // Then:
+        assertThat(contentOf(baselineFile)).matches("[0-9a-f]{16}\t20\tA\\.java\tB\\.java\n");
+        verify(reporter).generate(any(), eq(cpdReport), any());
+    }
+
+    @Test
+    void execute_shouldWriteAllDuplicatesToBaselineEvenIfChangedSinceRefIsSet(Project project, @TempDir Path tempDir) {
+        // Given:
+        File baselineFile = tempDir.resolve("baseline.txt").toFile();
+        CPDReport cpdReport = mock(CPDReport.class);
+        Match match = CpdBaselineFingerprintsTest.mockMatch(cpdReport, "int a = 1;", 20, new File(tempDir.toFile(), "A.java"),
+                new File(tempDir.toFile(), "B.java"));
+        when(cpdReport.getMatches()).thenReturn(singletonList(match));
+        when(executor.run(any(), any(), any())).thenReturn(cpdReport);
+
+        stubParametersWithDefaults(project);
+        when(parameters.getBaselineFile()).thenReturn(project.getObjects().fileProperty().fileValue(baselineFile));
+        when(parameters.getWriteBaseline()).thenReturn(property(true));
+        when(parameters.getChangedSinceRef()).thenReturn(property("origin/main")); // 'tempDir' is no git repository at all
+        when(parameters.getProjectDirectory()).thenReturn(project.getObjects().directoryProperty().fileValue(tempDir.toFile()));
+
+        // When:
+        underTest.execute();
+
+        // Then:
+        assertThat(contentOf(baselineFile)).matches("[0-9a-f]{16}\t20\tA\\.java\tB\\.java\n");
+        verify(executor).run(any(), eq(singleton(testFile(JAVA, "de/aaschmid/clazz/Clazz.java"))), any());
+    }
+
+    @Test
+    void execute_shouldOnlyReportDuplicatesNotContainedInBaseline(Project project, @TempDir Path tempDir) {
+        // Given:
+        CPDReport cpdReport = mock(CPDReport.class);
+        Match match = CpdBaselineFingerprintsTest.mockMatch(cpdReport, "int a = 1;", 20, new File(tempDir.toFile(), "A.java"),
+                new File(tempDir.toFile(), "B.java"));
+        when(cpdReport.getMatches()).thenReturn(singletonList(match));
+        when(executor.run(any(), any(), any())).thenReturn(cpdReport);
+
+        CPDReport filteredReport = mock(CPDReport.class);
+        when(cpdReport.filterMatches(any())).thenAnswer(invocation ->
+                invocation.<Predicate<Match>>getArgument(0).test(match) ? cpdReport : filteredReport);
+
+        File baselineFile = tempDir.resolve("baseline.txt").toFile();
+        new CpdBaselineFingerprints(cpdReport, tempDir.toFile()).write(baselineFile, singletonList(match), emptyList());
+
+        stubParametersWithDefaults(project);
+        when(parameters.getIgnoreFailures()).thenReturn(property(false));
+        when(parameters.getBaselineFile()).thenReturn(project.getObjects().fileProperty().fileValue(baselineFile));
+        when(parameters.getProjectDirectory()).thenReturn(project.getObjects().directoryProperty().fileValue(tempDir.toFile()));
+
+        // When:
+        underTest.execute();
+
+        // Then:
+        verify(reporter).generate(any(), eq(filteredReport), any());
+    }
+
+    @Test
+    void execute_shouldNotFailForIdenticalFilesContainedInBaseline(Project project, @TempDir Path tempDir) throws IOException {
+        // Given:
+        File original = Files.write(tempDir.resolve("Original.java"), "class Clazz {}".getBytes(StandardCharsets.UTF_8)).toFile();
+        File copy = Files.write(tempDir.resolve("Copy.java"), "class Clazz {}".getBytes(StandardCharsets.UTF_8)).toFile();
+
+        CPDReport cpdReport = mock(CPDReport.class);
+        when(cpdReport.getNumberOfTokensPerFile()).thenReturn(tokensPerFile(original, 20));
+        when(cpdReport.filterMatches(any())).thenReturn(cpdReport);
+        when(executor.run(any(), any(), any())).thenReturn(cpdReport);
+
+        File baselineFile = tempDir.resolve("baseline.txt").toFile();
+        new CpdBaselineFingerprints(cpdReport, tempDir.toFile()).write(baselineFile, emptyList(), singletonList(asList(original, copy)));
+
+        stubParametersWithDefaults(project);
+        when(parameters.getSkipIdenticalFiles()).thenReturn(property(true));
+        when(parameters.getSourceFiles()).thenReturn(project.files(original, copy));
+        when(parameters.getBaselineFile()).thenReturn(project.getObjects().fileProperty().fileValue(baselineFile));
+        when(parameters.getProjectDirectory()).thenReturn(project.getObjects().directoryProperty().fileValue(tempDir.toFile()));
+
+        // When:
+        underTest.execute();
+
+        // Then:
+        verify(executor).run(any(), eq(singleton(original)), any());
+        verify(reporter).generate(any(), eq(cpdReport), any());
+    }
+
+    @Test
+    void execute_shouldWriteMetricsFileIfConfigured(Project project, @TempDir Path tempDir) {
+        // Given:
+        File metricsFile = tempDir.resolve("metrics.json").toFile();
+
+        stubParametersWithDefaults(project);
+        when(parameters.getMetricsFile()).thenReturn(project.getObjects().fileProperty().fileValue(metricsFile));
+
+        // When:
+        underTest.execute();
+
+        // Then:
+        assertThat(contentOf(metricsFile))
+                .startsWith("{\n")
+                .contains("\"sourceFiles\": ", "\"tokens\": ", "\"matches\": ", "\"peakHeapBytes\": ", "\"phaseMillis\": ", "\"reports\": ");
+    }
+
     @Test
     void execute_shouldCreateCorrectCpdConfigurationFromParameters(Project project) {
         // Given:
@@ -121,7 +300,7 @@ class CpdActionTest {
         underTest.execute();
 
         // Then:
-        verify(executor).run(cpdConfiguration.capture(), any());
+        verify(executor).run(cpdConfiguration.capture(), any(), any());
 
         CPDConfiguration actualCpdConfig = cpdConfiguration.getValue();
         assertThat(actualCpdConfig.isFailOnError()).isFalse();
@@ -132,6 +311,23 @@ class CpdActionTest {
         assertThat(actualCpdConfig.isSkipDuplicates()).isTrue();
     }
 
+    @Test
+    void execute_shouldRecognizeAllLanguagesIfMultipleAreConfigured(Project project) {
+        // Given:
+        stubParametersWithDefaults(project);
+        when(parameters.getLanguage()).thenReturn(property("java, kotlin"));
+
+        // When:
+        underTest.execute();
+
+        // Then:
+        verify(executor).run(cpdConfiguration.capture(), any(), any());
+
+        CPDConfiguration actualCpdConfig = cpdConfiguration.getValue();
+        assertLanguage(actualCpdConfig, "java");
+        assertLanguage(actualCpdConfig, "kotlin");
+    }
+
     @Test
     void execute_shouldSetCorrectJavaLanguageProperties(Project project) {
         // Given:
@@ -145,7 +341,7 @@ class CpdActionTest {
         underTest.execute();
 
         // Then:
-        verify(executor).run(cpdConfiguration.capture(), any());
+        verify(executor).run(cpdConfiguration.capture(), any(), any());
 
         CPDConfiguration actualCpdConfig = cpdConfiguration.getValue();
         assertLanguage(actualCpdConfig, "java");
@@ -166,7 +362,7 @@ class CpdActionTest {
         underTest.execute();
 
         // Then:
-        verify(executor).run(cpdConfiguration.capture(), any());
+        verify(executor).run(cpdConfiguration.capture(), any(), any());
 
         CPDConfiguration actualCpdConfig = cpdConfiguration.getValue();
         assertLanguage(actualCpdConfig, "cpp");
@@ -176,7 +372,7 @@ class CpdActionTest {
 
     private void stubParametersWithDefaults(Project project) {
         Set<File> sourceFiles = singleton(testFile(JAVA, "de/aaschmid/clazz/Clazz.java"));
-        Report.Text report = new Report.Text(new File("cpd.text"), "\n", false);
+        Report.Text report = new Report.Text(new File("cpd.text"), "US-ASCII", false, "\n", false);
 
         when(parameters.getEncoding()).thenReturn(property("US-ASCII"));
         when(parameters.getFailOnError()).thenReturn(property(true));
@@ -189,8 +385,22 @@ class CpdActionTest {
         when(parameters.getSkipBlocks()).thenReturn(property(false));
         when(parameters.getSkipBlocksPattern()).thenReturn(property(" "));
         when(parameters.getSkipDuplicateFiles()).thenReturn(property(false));
+        when(parameters.getMaxFileSizeBytes()).thenReturn(project.getObjects().property(Long.class));
+        when(parameters.getMaxFileLines()).thenReturn(project.getObjects().property(Integer.class));
+        when(parameters.getSkipGeneratedFiles()).thenReturn(property(false));
+        when(parameters.getSkipIdenticalFiles()).thenReturn(property(false));
         when(parameters.getSourceFiles()).thenReturn(project.files(sourceFiles));
         when(parameters.getReportParameters()).thenReturn(listProperty(Report.class, singletonList(report)));
+        when(parameters.getMetricsFile()).thenReturn(project.getObjects().fileProperty());
+        when(parameters.getBaselineFile()).thenReturn(project.getObjects().fileProperty());
+        when(parameters.getWriteBaseline()).thenReturn(property(false));
+        when(parameters.getChangedSinceRef()).thenReturn(project.getObjects().property(String.class));
+    }
+
+    private static Map<FileId, Integer> tokensPerFile(File file, int tokens) {
+        FileId fileId = mock(FileId.class);
+        when(fileId.getAbsolutePath()).thenReturn(file.getAbsolutePath());
+        return singletonMap(fileId, tokens);
     }
 
     private CPDReport mockReportFor(Match match) {
@@ -0,0 +1,124 @@
+package de.aaschmid.gradle.plugins.cpd.internal.worker;
+
+import net.sourceforge.pmd.cpd.CPDReport;
+import net.sourceforge.pmd.cpd.Mark;
+import net.sourceforge.pmd.cpd.Match;
+import net.sourceforge.pmd.lang.document.Chars;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.document.FileLocation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.contentOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CpdBaselineFingerprintsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void fingerprint_shouldContainHashTokenCountAndSortedRelativeFiles() {
+        // Given:
+        File projectDir = tempDir.toFile();
+        CPDReport cpdReport = mock(CPDReport.class);
+        Match match = mockMatch(cpdReport, "int a = 1;", 42, new File(projectDir, "src/B.java"), new File(projectDir, "src/A.java"));
+
+        // When:
+        String actual = new CpdBaselineFingerprints(cpdReport, projectDir).fingerprint(match);
+
+        // Then:
+        assertThat(actual).matches("[0-9a-f]{16}\t42\tsrc/A\\.java\tsrc/B\\.java");
+    }
+
+    @Test
+    void fingerprint_shouldIgnoreWhitespaceDifferences() {
+        // Given:
+        File projectDir = tempDir.toFile();
+        File file = new File(projectDir, "A.java");
+
+        CPDReport cpdReport1 = mock(CPDReport.class);
+        Match match1 = mockMatch(cpdReport1, "if (a) {\n    b();\n}", 10, file);
+        CPDReport cpdReport2 = mock(CPDReport.class);
+        Match match2 = mockMatch(cpdReport2, "  if (a) {\r\n\t\tb();\r\n}\r\n", 10, file);
+
+        // Expect:
+        assertThat(new CpdBaselineFingerprints(cpdReport1, projectDir).fingerprint(match1))
+                .isEqualTo(new CpdBaselineFingerprints(cpdReport2, projectDir).fingerprint(match2));
+    }
+
+    @Test
+    void fingerprint_shouldContainContentHashMarkerAndSortedRelativeFilesForIdenticalFiles() throws IOException {
+        // Given:
+        File projectDir = tempDir.toFile();
+        List<File> identicalFiles = asList(createFile("src/B.java", "class Clazz {}"), createFile("src/A.java", "class Clazz {}"));
+
+        // When:
+        String actual = new CpdBaselineFingerprints(mock(CPDReport.class), projectDir).fingerprint(identicalFiles);
+
+        // Then:
+        assertThat(actual).matches("[0-9a-f]{16}\tidentical\tsrc/A\\.java\tsrc/B\\.java");
+    }
+
+    @Test
+    void write_shouldWriteFingerprintsWhichCanBeLoadedAgain() throws IOException {
+        // Given:
+        File projectDir = tempDir.toFile();
+        File baselineFile = new File(projectDir, "config/cpd/baseline.txt");
+        CPDReport cpdReport = mock(CPDReport.class);
+        Match match = mockMatch(cpdReport, "int a = 1;", 42, new File(projectDir, "A.java"), new File(projectDir, "B.java"));
+        List<File> identicalFiles = asList(createFile("C.java", "class Clazz {}"), createFile("D.java", "class Clazz {}"));
+        CpdBaselineFingerprints underTest = new CpdBaselineFingerprints(cpdReport, projectDir);
+
+        // When:
+        underTest.write(baselineFile, singletonList(match), singletonList(identicalFiles));
+
+        // Then:
+        assertThat(contentOf(baselineFile)).hasLineCount(2);
+        assertThat(CpdBaselineFingerprints.load(baselineFile))
+                .containsExactlyInAnyOrder(underTest.fingerprint(match), underTest.fingerprint(identicalFiles));
+    }
+
+    @Test
+    void load_shouldReturnEmptyBaselineIfFileDoesNotExist() {
+        // Expect:
+        assertThat(CpdBaselineFingerprints.load(tempDir.resolve("missing.txt").toFile())).isEmpty();
+    }
+
+    private File createFile(String name, String content) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(UTF_8)).toFile();
+    }
+
+    static Match mockMatch(CPDReport cpdReport, String code, int tokenCount, File... files) {
+        Mark[] marks = new Mark[files.length];
+        for (int i = 0; i < files.length; i++) {
+            FileId fileId = mock(FileId.class);
+            when(fileId.getAbsolutePath()).thenReturn(files[i].getAbsolutePath());
+            FileLocation location = mock(FileLocation.class);
+            when(location.getFileId()).thenReturn(fileId);
+            marks[i] = mock(Mark.class);
+            when(marks[i].getLocation()).thenReturn(location);
+        }
+        List<Mark> markList = asList(marks);
+
+        Match match = mock(Match.class);
+        when(match.getFirstMark()).thenReturn(marks[0]);
+        when(match.getTokenCount()).thenReturn(tokenCount);
+        when(match.iterator()).thenAnswer(invocation -> markList.iterator());
+        when(cpdReport.getSourceCodeSlice(marks[0])).thenReturn(Chars.wrap(code));
+        return match;
+    }
+}
@@ -0,0 +1,105 @@
+package de.aaschmid.gradle.plugins.cpd.internal.worker;
+
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CpdChangedFilesTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File repository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repository = tempDir.resolve("repository").toFile();
+        createFile("src/Changed.java", "class Changed {}");
+        createFile("src/Unchanged.java", "class Unchanged {}");
+        createFile(".gitignore", "build/\n");
+
+        git("init", "-q");
+        commit("initial");
+    }
+
+    @Test
+    void since_shouldReturnModifiedAndUntrackedButNotIgnoredFiles() throws Exception {
+        // Given:
+        createFile("src/Changed.java", "class Changed { int i; }");
+        createFile("src/Added.java", "class Added {}");
+        createFile("build/Ignored.java", "class Ignored {}");
+
+        // When:
+        Set<File> actual = new CpdChangedFiles(new File(repository, "src")).since("HEAD");
+
+        // Then:
+        assertThat(actual).containsExactlyInAnyOrder(
+                CpdChangedFiles.normalize(new File(repository, "src/Changed.java")),
+                CpdChangedFiles.normalize(new File(repository, "src/Added.java")));
+    }
+
+    @Test
+    void since_shouldNotReturnFilesOnlyChangedOnRefAfterBranchingOff() throws Exception {
+        // Given:
+        git("checkout", "-q", "-b", "feature");
+        createFile("src/Changed.java", "class Changed { int i; }");
+        commit("change on feature branch");
+
+        git("checkout", "-q", "-b", "upstream", "HEAD~1");
+        createFile("src/Unchanged.java", "class Unchanged { int i; }");
+        commit("change on upstream after branching off");
+        git("checkout", "-q", "feature");
+
+        // When:
+        Set<File> actual = new CpdChangedFiles(repository).since("upstream");
+
+        // Then:
+        assertThat(actual).containsExactly(CpdChangedFiles.normalize(new File(repository, "src/Changed.java")));
+    }
+
+    @Test
+    void since_shouldThrowGradleExceptionIfRefIsUnknown() {
+        // Expect:
+        assertThatThrownBy(() -> new CpdChangedFiles(repository).since("unknown-ref"))
+                .isInstanceOf(GradleException.class)
+                .hasMessageStartingWith("Could not determine changed files using 'git -c core.quotePath=false merge-base unknown-ref HEAD'");
+    }
+
+    @Test
+    void since_shouldThrowGradleExceptionIfRefStartsWithDash() {
+        // Expect:
+        assertThatThrownBy(() -> new CpdChangedFiles(repository).since("--output=foo"))
+                .isInstanceOf(GradleException.class)
+                .hasMessage("Invalid git ref '--output=foo' as it starts with '-'.");
+    }
+
+    private void createFile(String path, String content) throws IOException {
+        Path file = repository.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(UTF_8));
+    }
+
+    private void commit(String message) throws Exception {
+        git("add", ".");
+        git("-c", "user.name=cpd", "-c", "user.email=cpd@example.com", "commit", "-q", "-m", message);
+    }
+
+    private void git(String... arguments) throws Exception {
+        String[] command = new String[arguments.length + 1];
+        command[0] = "git";
+        System.arraycopy(arguments, 0, command, 1, arguments.length);
+        Process process = new ProcessBuilder(command).directory(repository).inheritIO().start();
+        assertThat(process.waitFor()).isZero();
+    }
+}
@@ -0,0 +1,63 @@
+package de.aaschmid.gradle.plugins.cpd.internal.worker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CpdIdenticalFilesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void detect_shouldGroupFilesWithIdenticalContentRegardlessOfName() throws IOException {
+        // Given:
+        File original = createFile("a/Clazz.java", "class Clazz {}");
+        File copy = createFile("b/Renamed.java", "class Clazz {}");
+        File other = createFile("c/Other.java", "class Other {}");
+        CpdMetrics metrics = new CpdMetrics();
+
+        // When:
+        CpdIdenticalFiles actual = CpdIdenticalFiles.detect(files(original, copy, other), metrics);
+
+        // Then:
+        assertThat(actual.getDistinctFiles()).containsExactly(original, other);
+        assertThat(actual.getIdenticalFileGroups()).containsExactly(asList(original, copy));
+        assertThat(metrics.toJson()).contains("\"identical\": 1")
+                .contains("\"identicalFiles\": [\n    [\"" + original.getAbsolutePath() + "\", \"" + copy.getAbsolutePath() + "\"]\n  ]");
+    }
+
+    @Test
+    void detect_shouldNotGroupFilesWithSameNameAndLengthButDifferentContent() throws IOException {
+        // Given:
+        File first = createFile("a/Clazz.java", "class Clazz {}");
+        File second = createFile("b/Clazz.java", "class Dummy {}");
+
+        // When:
+        CpdIdenticalFiles actual = CpdIdenticalFiles.detect(files(first, second), new CpdMetrics());
+
+        // Then:
+        assertThat(actual.getDistinctFiles()).containsExactly(first, second);
+        assertThat(actual.getIdenticalFileGroups()).isEmpty();
+    }
+
+    private File createFile(String name, String content) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(UTF_8)).toFile();
+    }
+
+    private static Set<File> files(File... files) {
+        return new LinkedHashSet<>(asList(files));
+    }
+}
@@ -23,7 +23,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
@@ -48,6 +52,7 @@ class CpdReporterTest {
         // Given:
         Report report = mock(Report.class);
         when(report.getDestination()).thenReturn(tempDir.resolve("report.file").toFile());
+        when(report.getEncoding()).thenReturn("UTF-8");
 
         CPDReportRenderer cpdRenderer = mock(CPDReportRenderer.class);
         doThrow(new IOException("foo")).when(cpdRenderer).render(any(), any());
@@ -56,31 +61,55 @@ class CpdReporterTest {
         doReturn(cpdRenderer).when(underTestSpy).createRendererFor(report);
 
         // Expect:
-        assertThatThrownBy(() -> underTestSpy.generate(singletonList(report), mock(CPDReport.class)))
+        assertThatThrownBy(() -> underTestSpy.generate(singletonList(report), mock(CPDReport.class), new CpdMetrics()))
                 .isInstanceOf(GradleException.class)
                 .hasMessage("foo")
                 .hasCauseInstanceOf(IOException.class);
 
     }
 
+    @Test
+    void generate_shouldReThrowRendererThrownIoExceptionAsGradleExceptionForAnyOfMultipleReports(@TempDir Path tempDir) throws Exception {
+        // Given:
+        Report failingReport = mock(Report.class);
+        when(failingReport.getDestination()).thenReturn(tempDir.resolve("failing.file").toFile());
+        when(failingReport.getEncoding()).thenReturn("UTF-8");
+        Report report = mock(Report.class);
+        when(report.getDestination()).thenReturn(tempDir.resolve("report.file").toFile());
+        when(report.getEncoding()).thenReturn("UTF-8");
+
+        CPDReportRenderer failingCpdRenderer = mock(CPDReportRenderer.class);
+        doThrow(new IOException("bar")).when(failingCpdRenderer).render(any(), any());
+
+        CpdReporter underTestSpy = spy(underTest);
+        doReturn(failingCpdRenderer).when(underTestSpy).createRendererFor(failingReport);
+        doReturn(mock(CPDReportRenderer.class)).when(underTestSpy).createRendererFor(report);
+
+        // Expect:
+        assertThatThrownBy(() -> underTestSpy.generate(asList(report, failingReport), mock(CPDReport.class), new CpdMetrics()))
+                .isInstanceOf(GradleException.class)
+                .hasMessage("bar")
+                .hasCauseInstanceOf(IOException.class);
+    }
+
     @Tag(TestTag.INTEGRATION_TEST)
     @Test // ParameterizedTest not possible because Source provider does not allow arguments like @TempDir
     void generate_shouldGenerateReport(@TempDir Path tempDir) {
         // Given:
         File csvReportFile = tempDir.resolve("cpd.csv").toFile();
-        Report.Csv csvReport = new Report.Csv(csvReportFile, ',', true);
+        Report.Csv csvReport = new Report.Csv(csvReportFile, "UTF-8", false, ',', true);
 
         File csvReportFileWithoutLines = tempDir.resolve("cpdWithoutLines.csv").toFile();
-        Report.Csv csvReportWithoutLines = new Report.Csv(csvReportFileWithoutLines, ';', false);
+        Report.Csv csvReportWithoutLines = new Report.Csv(csvReportFileWithoutLines, "UTF-8", false, ';', false);
 
         File textReportFile = tempDir.resolve("cpd.text").toFile();
-        Report.Text textReport = new Report.Text(textReportFile, "#######", false);
+        Report.Text textReport = new Report.Text(textReportFile, "UTF-8", false, "#######", false);
 
         File vsReportFile = tempDir.resolve("cpd.vs").toFile();
-        Report.Vs vsReport = new Report.Vs(vsReportFile);
+        Report.Vs vsReport = new Report.Vs(vsReportFile, "UTF-8", false);
 
         File xmlReportFile = tempDir.resolve("cpd.xml").toFile();
-        Report.Xml xmlReport = new Report.Xml(xmlReportFile, "ISO-8859-15");
+        Report.Xml xmlReport = new Report.Xml(xmlReportFile, "ISO-8859-15", false);
 
         Mark mark = mockMarkWithLocation(1, 2);
 
@@ -95,7 +124,7 @@ class CpdReporterTest {
         when(cpdReport.getSourceCodeSlice(any())).thenReturn(Chars.EMPTY);
 
         // When:
-        underTest.generate(asList(csvReport, csvReportWithoutLines, textReport, vsReport, xmlReport), cpdReport);
+        underTest.generate(asList(csvReport, csvReportWithoutLines, textReport, vsReport, xmlReport), cpdReport, new CpdMetrics());
 
         // Then:
         SoftAssertions.assertSoftly(softly -> {
@@ -107,10 +136,40 @@ class CpdReporterTest {
         });
     }
 
+    @Tag(TestTag.INTEGRATION_TEST)
+    @Test
+    void generate_shouldWriteReportUsingConfiguredEncoding(@TempDir Path tempDir) {
+        // Given:
+        File xmlReportFile = tempDir.resolve("cpd.xml").toFile();
+        Report.Xml xmlReport = new Report.Xml(xmlReportFile, "UTF-16", false);
+
+        // When:
+        underTest.generate(singletonList(xmlReport), mock(CPDReport.class), new CpdMetrics());
+
+        // Then:
+        assertThat(contentOf(xmlReportFile, StandardCharsets.UTF_16)).startsWith("<?xml version=\"1.0\" encoding=\"UTF-16\"?>");
+    }
+
+    @Tag(TestTag.INTEGRATION_TEST)
+    @Test
+    void generate_shouldWriteCompressedReport(@TempDir Path tempDir) throws Exception {
+        // Given:
+        File csvReportFile = tempDir.resolve("cpd.csv.gz").toFile();
+        Report.Csv csvReport = new Report.Csv(csvReportFile, "UTF-8", true, ',', true);
+
+        // When:
+        underTest.generate(singletonList(csvReport), mock(CPDReport.class), new CpdMetrics());
+
+        // Then:
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(csvReportFile.toPath()))) {
+            assertThat(inputStream).asString(StandardCharsets.UTF_8).isEqualTo("lines,tokens,occurrences\n");
+        }
+    }
+
     @Test
     void createRendererFor_shouldReturnCorrectlyConfiguredCsvRenderer() {
         // Given:
-        Report.Csv report = new Report.Csv(new File("cpd.csv"), ';', true);
+        Report.Csv report = new Report.Csv(new File("cpd.csv"), "UTF-8", false, ';', true);
 
         // When:
         CPDReportRenderer result = underTest.createRendererFor(report);
@@ -125,7 +184,7 @@ class CpdReporterTest {
     @Test
     void createRendererFor_shouldReturnCorrectlyConfiguredSimpleRenderer() {
         // Given:
-        Report.Text report = new Report.Text(new File("cpd.txt"), "---", true);
+        Report.Text report = new Report.Text(new File("cpd.txt"), "UTF-8", false, "---", true);
 
         // When:
         CPDReportRenderer result = underTest.createRendererFor(report);
@@ -140,7 +199,7 @@ class CpdReporterTest {
     @Test
     void createRendererFor_shouldReturnCorrectlyConfiguredVsRenderer() {
         // Given:
-        Report.Vs report = new Report.Vs(new File("cpd.vs"));
+        Report.Vs report = new Report.Vs(new File("cpd.vs"), "UTF-8", false);
 
         // When:
         CPDReportRenderer result = underTest.createRendererFor(report);
@@ -152,7 +211,7 @@ class CpdReporterTest {
     @Test
     void createRendererFor_shouldReturnCorrectlyConfiguredXmlRenderer() {
         // Given:
-        Report.Xml report = new Report.Xml(new File("cpd.xml"), "ISO-8859-1");
+        Report.Xml report = new Report.Xml(new File("cpd.xml"), "ISO-8859-1", false);
 
         // When:
         CPDReportRenderer result = underTest.createRendererFor(report);
@@ -166,7 +225,7 @@ class CpdReporterTest {
     @Test
     void createRendererFor_shouldThrowGradleExceptionOnUnknownReportType() {
         // Given:
-        Report report = new Report(new File("cpd.xml")) {
+        Report report = new Report(new File("cpd.xml"), "UTF-8", false) {
         };
 
         // Expect:
@@ -0,0 +1,138 @@
+package de.aaschmid.gradle.plugins.cpd.internal.worker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CpdSourceFileFilterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void filter_shouldReturnAllFilesIfNoThresholdIsConfigured() throws IOException {
+        // Given:
+        Set<File> sourceFiles = files(createFile("Small.java", 1), createFile("Large.java", 1000));
+
+        // When:
+        Set<File> actual = new CpdSourceFileFilter(null, null, null, UTF_8).filter(sourceFiles, new CpdMetrics());
+
+        // Then:
+        assertThat(actual).isEqualTo(sourceFiles);
+    }
+
+    @Test
+    void filter_shouldSkipFilesLargerThanMaxFileSizeBytes() throws IOException {
+        // Given:
+        File small = createFile("Small.java", 1);
+        File large = createFile("Large.java", 1000);
+        CpdMetrics metrics = new CpdMetrics();
+
+        // When:
+        Set<File> actual = new CpdSourceFileFilter(small.length(), null, null, UTF_8).filter(files(small, large), metrics);
+
+        // Then:
+        assertThat(actual).containsExactly(small);
+        assertThat(metrics.toJson()).contains("\"maxFileSizeBytes\": 1", "\"maxFileLines\": 0");
+    }
+
+    @Test
+    void filter_shouldSkipFilesHavingMoreLinesThanMaxFileLines() throws IOException {
+        // Given:
+        File exact = createFile("Exact.java", 10);
+        File tooLong = createFile("TooLong.java", 11);
+        CpdMetrics metrics = new CpdMetrics();
+
+        // When:
+        Set<File> actual = new CpdSourceFileFilter(null, 10, null, UTF_8).filter(files(exact, tooLong), metrics);
+
+        // Then:
+        assertThat(actual).containsExactly(exact);
+        assertThat(metrics.toJson()).contains("\"maxFileSizeBytes\": 0", "\"maxFileLines\": 1");
+    }
+
+    @Test
+    void filter_shouldNotSkipFilesHavingExactlyMaxFileLinesAndTrailingLineFeed() throws IOException {
+        // Given:
+        File exact = createFile("Exact.java", "// line 0\n// line 1\n");
+        File tooLong = createFile("TooLong.java", "// line 0\n// line 1\n// line 2");
+
+        // When:
+        Set<File> actual = new CpdSourceFileFilter(null, 2, null, UTF_8).filter(files(exact, tooLong), new CpdMetrics());
+
+        // Then:
+        assertThat(actual).containsExactly(exact);
+    }
+
+    @Test
+    void filter_shouldCountLinesUsingConfiguredEncoding() throws IOException {
+        // Given: '\u0a0a' is encoded as two line feed bytes in UTF-16
+        File file = Files.write(tempDir.resolve("Utf16.java"), "// \u0a0a\n".getBytes(UTF_16BE)).toFile();
+
+        // When:
+        Set<File> actual = new CpdSourceFileFilter(null, 1, null, UTF_16BE).filter(files(file), new CpdMetrics());
+
+        // Then:
+        assertThat(actual).containsExactly(file);
+    }
+
+    @Test
+    void filter_shouldSkipFilesContainingGeneratedFilesPatternWithinHeader() throws IOException {
+        // Given:
+        File handWritten = createFile("HandWritten.java", "import javax.annotation.Generated;\n\npublic class HandWritten {}");
+        File generated = createFile("Generated.java", "// Generated by the protocol buffer compiler.  DO NOT EDIT!\nclass Generated {}");
+        Pattern pattern = Pattern.compile("@(\\w+\\.)*Generated\\b|DO NOT EDIT");
+        CpdMetrics metrics = new CpdMetrics();
+
+        // When:
+        Set<File> actual = new CpdSourceFileFilter(null, null, pattern, UTF_8).filter(files(handWritten, generated), metrics);
+
+        // Then:
+        assertThat(actual).containsExactly(handWritten);
+        assertThat(metrics.toJson()).contains("\"generated\": 1");
+    }
+
+    @Test
+    void filter_shouldNotSkipFilesContainingGeneratedFilesPatternAfterHeader() throws IOException {
+        // Given:
+        StringBuilder content = new StringBuilder();
+        while (content.length() < CpdSourceFileFilter.GENERATED_HEADER_BYTES) {
+            content.append("// padding\n");
+        }
+        File file = createFile("Late.java", content.append("@Generated class Late {}").toString());
+
+        // When:
+        Set<File> actual = new CpdSourceFileFilter(null, null, Pattern.compile("@Generated"), UTF_8).filter(files(file), new CpdMetrics());
+
+        // Then:
+        assertThat(actual).containsExactly(file);
+    }
+
+    private File createFile(String name, int lines) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            content.append(i == 0 ? "" : "\n").append("// line ").append(i);
+        }
+        return createFile(name, content.toString());
+    }
+
+    private File createFile(String name, String content) throws IOException {
+        return Files.write(tempDir.resolve(name), content.getBytes(UTF_8)).toFile();
+    }
+
+    private static Set<File> files(File... files) {
+        return new LinkedHashSet<>(asList(files));
+    }
+}